@@ -19,6 +19,8 @@ import java.util.stream.Collectors;
 @JsonTypeName("stellaris")
 public class StellarisSavegameData extends SavegameData<StellarisTag> {
 
+    private static final NodePointer IRONMAN = NodePointer.builder().name("galaxy").name("ironman").build();
+
     protected StellarisTag tag;
     protected List<StellarisTag> allTags;
     private GameNamedVersion version;
@@ -44,7 +46,7 @@ public class StellarisSavegameData extends SavegameData<StellarisTag> {
     protected void init(SavegameContent content) {
         campaignHeuristic = SavegameType.STELLARIS.getCampaignIdHeuristic(content);
 
-        ironman = NodePointer.builder().name("galaxy").name("ironman").build().getIfPresent(content.get())
+        ironman = IRONMAN.getIfPresent(content.get())
                 .map(Node::getBoolean).orElse(false);
         date = GameDateType.STELLARIS.fromString(content.get().getNodeForKey("date").getString());
 
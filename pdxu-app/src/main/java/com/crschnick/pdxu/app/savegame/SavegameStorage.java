@@ -43,11 +43,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
@@ -451,7 +453,8 @@ public abstract class SavegameStorage<
         SavegameParseResult result;
         boolean melted;
         try {
-            var bytes = Files.readAllBytes(file);
+            // The type is determined from the start of the file only
+            var bytes = SavegameType.readDetectionBytes(file);
             if (type.isBinary(bytes)) {
                 bytes = RakalyHelper.toEquivalentPlaintext(file);
                 melted = true;
@@ -459,7 +462,11 @@ public abstract class SavegameStorage<
                 melted = false;
             }
             var struc = type.determineStructure(bytes);
-            result = struc.parse(bytes);
+            // Only the info is created from the content, which reads just a few top level entries.
+            // Plaintext savegames are read in chunks, so the nodes don't keep the whole file in memory.
+            // This gives up the parallel tokenization of in memory input, as entries are loaded in the background
+            var parser = type.getParser().deferred();
+            result = melted ? struc.parse(bytes, parser) : struc.parse(file, parser);
         } catch (Throwable ex) {
             ErrorHandler.handleException(ex);
             e.fail();
@@ -623,14 +630,29 @@ public abstract class SavegameStorage<
         }
     }
 
-    private String checksum(byte[] content) {
-        MessageDigest d;
+    private MessageDigest createChecksumDigest() {
         try {
-            d = MessageDigest.getInstance("MD5");
+            return MessageDigest.getInstance("MD5");
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("MD5 missing!");
         }
+    }
+
+    private String checksum(byte[] content) {
+        var d = createChecksumDigest();
         d.update(content);
+        return formatChecksum(d);
+    }
+
+    private String checksum(Path file) throws IOException {
+        var d = createChecksumDigest();
+        try (var in = new DigestInputStream(Files.newInputStream(file), d)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return formatChecksum(d);
+    }
+
+    private String formatChecksum(MessageDigest d) {
         StringBuilder c = new StringBuilder();
         ByteBuffer b = ByteBuffer.wrap(d.digest());
         for (int i = 0; i < 16; i++) {
@@ -676,7 +698,8 @@ public abstract class SavegameStorage<
                 melted = false;
             }
             var struc = type.determineStructure(data);
-            result[0] = struc.parse(data);
+            // The content is only used to create the info, the savegame itself is stored as is
+            result[0] = struc.parse(data, type.getParser().deferred());
         } catch (SavegameFormatException ex) {
             return Optional.of(new SavegameParseResult.Invalid(ex.getMessage()));
         } catch (Exception ex) {
@@ -743,8 +766,8 @@ public abstract class SavegameStorage<
         String checksum;
         boolean melted = false;
         try {
-            bytes = Files.readAllBytes(getSavegameFile(e));
-            checksum = checksum(bytes);
+            checksum = checksum(getSavegameFile(e));
+            bytes = SavegameType.readDetectionBytes(getSavegameFile(e));
             if (type.isBinary(bytes)) {
                 melted = true;
                 bytes = RakalyHelper.toEquivalentPlaintext(getSavegameFile(e));
@@ -755,7 +778,13 @@ public abstract class SavegameStorage<
         }
 
         var struc = type.determineStructure(bytes);
-        var r = struc.parse(bytes);
+        SavegameParseResult r;
+        try {
+            r = melted ? struc.parse(bytes) : struc.parse(getSavegameFile(e), type.getParser());
+        } catch (IOException ex) {
+            ErrorHandler.handleException(ex);
+            return;
+        }
         if (r.success().isEmpty()) {
             return;
         }
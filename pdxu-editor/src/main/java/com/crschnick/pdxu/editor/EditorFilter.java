@@ -62,8 +62,8 @@ public class EditorFilter {
 
     public List<EditorNode> filter(List<EditorNode> input) {
         var matcher = caseSensitive.get() ?
-                new NodeMatcher.CaseSenstiveMatcher(filterString.get()) :
-                new NodeMatcher.CaseInsenstiveMatcher(filterString.get());
+                new NodeMatcher.CaseSenstiveMatcher(filterString.get(), true) :
+                new NodeMatcher.CaseInsenstiveMatcher(filterString.get(), true);
         return input.stream().filter(n -> {
             if (!filterKeys.get() && !filterValues.get()) {
                 return true;
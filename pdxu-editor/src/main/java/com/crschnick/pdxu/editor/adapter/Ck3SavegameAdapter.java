@@ -84,13 +84,16 @@ public class Ck3SavegameAdapter implements EditorSavegameAdapter {
 
     @Override
     public Map<String, NodePointer> createCommonJumps(EditorState state) {
-        var player = NodePointer.builder().name("currently_played_characters").index(0).build();
+        // These pointers are evaluated by most of the other jumps, so they are memoized
+        var player = NodePointer.builder().name("currently_played_characters").index(0).build().memoized();
         var playerDyn = NodePointer.builder()
-                .name("living").pointerEvaluation(player).name("dynasty_house").build();
+                .name("living").pointerEvaluation(player).name("dynasty_house").build().memoized();
         var houseDyn = NodePointer.builder().name("dynasties").name("dynasty_house")
-                .pointerEvaluation(playerDyn).build();
+                .pointerEvaluation(playerDyn).build().memoized();
         var dynasty = NodePointer.builder().name("dynasties").name("dynasties")
-                .pointerEvaluation(NodePointer.fromBase(houseDyn).name("dynasty").build()).build();
+                .pointerEvaluation(NodePointer.fromBase(houseDyn).name("dynasty").build()).build().memoized();
+        var houseCoa = NodePointer.fromBase(houseDyn).name("coat_of_arms_id").build().memoized();
+        var dynCoa = NodePointer.fromBase(dynasty).name("coat_of_arms_id").build().memoized();
 
 
         var map = new LinkedHashMap<String, NodePointer>();
@@ -119,13 +122,11 @@ public class Ck3SavegameAdapter implements EditorSavegameAdapter {
 
         var houseCoaId = NodePointer.builder().name("coat_of_arms")
                 .name("coat_of_arms_manager_database").function((root, n) -> {
-            var houseCoa = NodePointer.fromBase(houseDyn).name("coat_of_arms_id").build();
             var val = houseCoa.get(root);
             if (val != null) {
                 return val.getString();
             }
 
-            var dynCoa = NodePointer.fromBase(dynasty).name("coat_of_arms_id").build();
             val = dynCoa.get(root);
             if (val != null) {
                 return val.getString();
@@ -138,7 +139,6 @@ public class Ck3SavegameAdapter implements EditorSavegameAdapter {
 
         var dynastyCoa = NodePointer.builder().name("coat_of_arms")
                 .name("coat_of_arms_manager_database").function((root, n) -> {
-                    var dynCoa = NodePointer.fromBase(dynasty).name("coat_of_arms_id").build();
                     var val = dynCoa.get(root);
                     if (val != null) {
                         return val.getString();
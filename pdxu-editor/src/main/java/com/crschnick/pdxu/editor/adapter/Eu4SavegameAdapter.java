@@ -61,12 +61,13 @@ public class Eu4SavegameAdapter implements EditorSavegameAdapter {
 
 
         var country = NodePointer.builder().name("countries")
-                .pointerEvaluation(NodePointer.builder().name("player").build()).build();
+                .pointerEvaluation(NodePointer.builder().name("player").build().memoized()).build().memoized();
         map.put("Player country", country);
 
 
-        var rulerId = NodePointer.fromBase(country).name("monarch").name("id").build();
-        var heirId = NodePointer.fromBase(country).name("heir").name("id").build();
+        // The person ids are evaluated again for every history entry
+        var rulerId = NodePointer.fromBase(country).name("monarch").name("id").build().memoized();
+        var heirId = NodePointer.fromBase(country).name("heir").name("id").build().memoized();
         map.put("Player country ruler", personPointer(state, country, rulerId));
         map.put("Player country heir", personPointer(state, country, heirId));
 
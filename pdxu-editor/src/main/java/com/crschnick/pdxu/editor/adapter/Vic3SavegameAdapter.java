@@ -84,7 +84,7 @@ public class Vic3SavegameAdapter implements EditorSavegameAdapter {
 
     @Override
     public Map<String, NodePointer> createCommonJumps(EditorState state) {
-        var countryId = NodePointer.builder().name("previous_played").index(0).name("idtype").build();
+        var countryId = NodePointer.builder().name("previous_played").index(0).name("idtype").build().memoized();
         var country = NodePointer.builder().name("country_manager").name("database").pointerEvaluation(countryId).build();
 
         var map = new LinkedHashMap<String, NodePointer>();
@@ -78,7 +78,7 @@ public final class EditorCollectorNode extends EditorNode {
 
     @Override
     public boolean filterValue(NodeMatcher matcher) {
-        return getNodes().stream().anyMatch(n -> n.matches(matcher));
+        return getNodes().stream().anyMatch(n -> n.matchesParallel(matcher));
     }
 
     @Override
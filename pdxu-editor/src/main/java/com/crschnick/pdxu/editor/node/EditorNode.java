@@ -1,15 +1,16 @@
 package com.crschnick.pdxu.editor.node;
 
 import com.crschnick.pdxu.io.node.ArrayNode;
+import com.crschnick.pdxu.io.node.LinkedArrayNode;
 import com.crschnick.pdxu.io.node.Node;
+import com.crschnick.pdxu.io.node.NodeCursor;
+import com.crschnick.pdxu.io.node.NodeKey;
 import com.crschnick.pdxu.io.node.NodeMatcher;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 
 public abstract class EditorNode {
@@ -25,100 +26,84 @@ public abstract class EditorNode {
     }
 
     public static Optional<EditorNode> fastEditorSimpleNodeSearch(EditorNode parent, ArrayNode ar, String key) {
-        AtomicInteger parentIndex = new AtomicInteger();
-        AtomicInteger index = new AtomicInteger();
-        AtomicInteger previousKeyStart = new AtomicInteger();
-        AtomicReference<EditorSimpleNode> found = new AtomicReference<>();
-        ar.forEach((k, v) -> {
-            if (k != null) {
-                boolean endsHere = index.get() + 1 == ar.size() ||
-                        !ar.isKeyAt(k, index.get() + 1);
-                if (!endsHere) {
-                    index.getAndIncrement();
-                    return true;
-                }
-
-                int start = previousKeyStart.get();
-                int end = index.get();
-                boolean shouldCollect = end > start;
-                if (shouldCollect) {
-                    index.getAndIncrement();
-                    parentIndex.getAndIncrement();
-                }
-
-                previousKeyStart.set(end + 1);
-
-                if (shouldCollect) {
-                    return true;
-                }
-            } else {
-                previousKeyStart.incrementAndGet();
+        var nodeKey = NodeKey.of(key);
+        var cursor = ar.cursor();
+        int parentIndex = 0;
+        boolean hasNext = cursor.next();
+        while (hasNext) {
+            int start = cursor.getIndex();
+            if (!cursor.hasKey()) {
+                parentIndex++;
+                hasNext = cursor.next();
+                continue;
             }
 
-            if (k != null && k.equals(key)) {
-                found.set(new EditorSimpleNode(
-                        parent,
-                        k,
-                        parentIndex.get(),
-                        index.get()));
-                return false;
+            boolean matches = cursor.keyEquals(nodeKey);
+            // Only the parts of linked array nodes can use different charsets
+            hasNext = skipSameKeys(cursor, ar instanceof LinkedArrayNode ? cursor.getKey() : null);
+            int end = hasNext ? cursor.getIndex() - 1 : ar.size() - 1;
+            if (end == start && matches) {
+                return Optional.of(new EditorSimpleNode(parent, key, parentIndex, start));
             }
-
-            parentIndex.getAndIncrement();
-            index.getAndIncrement();
-            return true;
-        }, true);
-        return Optional.ofNullable(found.get());
+            parentIndex++;
+        }
+        return Optional.empty();
     }
 
     public static List<EditorNode> create(EditorNode parent, ArrayNode ar) {
         var result = new ArrayList<EditorNode>();
-        AtomicInteger parentIndex = new AtomicInteger();
-        AtomicInteger index = new AtomicInteger();
-        AtomicInteger previousKeyStart = new AtomicInteger();
-        ar.forEach((k, v) -> {
-            if (k != null) {
-                boolean endsHere = index.get() + 1 == ar.size() ||
-                        !ar.isKeyAt(k, index.get() + 1);
-                if (!endsHere) {
-                    index.getAndIncrement();
-                    return;
-                }
-
-                int start = previousKeyStart.get();
-                int end = index.get();
-                boolean shouldCollect = end > start;
-
-                if (shouldCollect) {
-                    result.add(new EditorCollectorNode(
-                            parent,
-                            k,
-                            parentIndex.get(),
-                            start,
-                            end - start + 1));
-                    index.getAndIncrement();
-                    parentIndex.getAndIncrement();
-                }
-
-                previousKeyStart.set(end + 1);
-
-                if (shouldCollect) {
-                    return;
-                }
+        var cursor = ar.cursor();
+        int parentIndex = 0;
+        boolean hasNext = cursor.next();
+        while (hasNext) {
+            int start = cursor.getIndex();
+            if (!cursor.hasKey()) {
+                result.add(new EditorSimpleNode(parent, null, parentIndex, start));
+                parentIndex++;
+                hasNext = cursor.next();
+                continue;
+            }
+
+            // Consecutive entries with the same key are shown as one collector node
+            var key = cursor.getKey();
+            hasNext = skipSameKeys(cursor, key);
+            int end = hasNext ? cursor.getIndex() - 1 : ar.size() - 1;
+            if (end > start) {
+                result.add(new EditorCollectorNode(parent, key, parentIndex, start, end - start + 1));
             } else {
-                previousKeyStart.incrementAndGet();
+                result.add(new EditorSimpleNode(parent, key, parentIndex, start));
             }
+            parentIndex++;
+        }
+        return result;
+    }
 
-            result.add(new EditorSimpleNode(
-                    parent,
-                    k,
-                    parentIndex.get(),
-                    index.get()));
+    /**
+     * Moves the cursor past all entries that have the same key as the current entry.
+     * The raw key bytes are only compared if both keys use the same charset, as the parts of a linked array node
+     * can come from different contexts. Otherwise, the evaluated keys are compared.
+     *
+     * @param key the evaluated key of the current entry, can be null if all entries use the same charset
+     * @return whether the cursor is on an entry after them
+     */
+    private static boolean skipSameKeys(NodeCursor cursor, String key) {
+        var data = cursor.getKeyData();
+        var charset = cursor.getKeyCharset();
+        int begin = cursor.getKeyBegin();
+        int length = cursor.getKeyLength();
+        while (cursor.next()) {
+            boolean same;
+            if (key == null || cursor.getKeyData() == data || cursor.getKeyCharset().equals(charset)) {
+                same = cursor.keyEquals(data, begin, length);
+            } else {
+                same = cursor.hasKey() && key.equals(cursor.getKey());
+            }
 
-            parentIndex.getAndIncrement();
-            index.getAndIncrement();
-        }, true);
-        return result;
+            if (!same) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public abstract void updateNodeAtRawIndex(Node replacementValue, String toInsertKeyName, int index);
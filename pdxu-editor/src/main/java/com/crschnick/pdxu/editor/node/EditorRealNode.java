@@ -26,7 +26,7 @@ public abstract class EditorRealNode extends EditorNode {
 
     @Override
     public boolean filterValue(NodeMatcher matcher) {
-        return this.getBackingNode().matches(matcher);
+        return this.getBackingNode().matchesParallel(matcher);
     }
 
     @Override
@@ -1,16 +1,18 @@
 package com.crschnick.pdxu.io.node;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 public abstract class ArrayNode extends Node {
 
+    private static final int MIN_PARALLEL_MATCH_SIZE = 1 << 12;
+
 
     public static ArrayNode array(List<Node> values) {
         // Defensive copy of values
-        return new SimpleArrayNode(new NodeContext(), null, null, new ArrayList<>(values));
+        return SimpleArrayNode.ofNodes(new NodeContext(), null, values);
     }
 
     public static ArrayNode sameKeyArray(String key, List<Node> values) {
@@ -18,12 +20,12 @@ public abstract class ArrayNode extends Node {
         var ki = new int[values.size()];
         Arrays.fill(ki, 0);
         // Defensive copy of values
-        return new SimpleArrayNode(ctx, ki, null, new ArrayList<>(values));
+        return SimpleArrayNode.ofNodes(ctx, ki, values);
     }
 
     public static ArrayNode singleKeyNode(String key, Node value) {
         var ctx = new NodeContext(key, false);
-        return new SimpleArrayNode(ctx, new int[]{0}, new int[]{-1}, List.of(value));
+        return SimpleArrayNode.ofNodes(ctx, new int[]{0}, List.of(value));
     }
 
     public final ArrayNode replaceKey(String key, Node value) {
@@ -44,17 +46,17 @@ public abstract class ArrayNode extends Node {
 
         // Splice at begin only
         if (beginIndex == 0) {
-            return new LinkedArrayNode(List.of(toInsert, splice(length, size() - length)));
+            return LinkedArrayNode.concat(toInsert, splice(length, size() - length));
         }
 
         // Splice at end only
         if (beginIndex + length == size()) {
-            return new LinkedArrayNode(List.of(splice(0, beginIndex), toInsert));
+            return LinkedArrayNode.concat(splice(0, beginIndex), toInsert);
         }
 
         var begin = splice(0, beginIndex);
         var end = splice(beginIndex + length, size() - (beginIndex + length));
-        return new LinkedArrayNode(List.of(begin, toInsert, end));
+        return LinkedArrayNode.concat(LinkedArrayNode.concat(begin, toInsert), end);
     }
 
     @Override
@@ -70,8 +72,44 @@ public abstract class ArrayNode extends Node {
 
     public abstract boolean isKeyAt(String key, int index);
 
+    public abstract boolean isKeyAt(NodeKey key, int index);
+
     public abstract ArrayNode splice(int begin, int length);
 
+    /**
+     * @return a new cursor over the entries of this node
+     */
+    public abstract NodeCursor cursor();
+
+    @Override
+    public boolean matchesParallel(NodeMatcher matcher) {
+        int size = size();
+        if (size < 2 * MIN_PARALLEL_MATCH_SIZE) {
+            return matchesWithParallelChildren(matcher);
+        }
+
+        // Chunks are small enough so that the search stops soon after a match is found.
+        // They are matched as index ranges, as splices would have to modify this node
+        int chunkCount = (size + MIN_PARALLEL_MATCH_SIZE - 1) / MIN_PARALLEL_MATCH_SIZE;
+        return IntStream.range(0, chunkCount).parallel().anyMatch(c -> {
+            int begin = c * MIN_PARALLEL_MATCH_SIZE;
+            return matchesWithParallelChildren(matcher, begin, Math.min(begin + MIN_PARALLEL_MATCH_SIZE, size));
+        });
+    }
+
+    /**
+     * Matches the entries of this node sequentially, but searches nested arrays with {@link #matchesParallel(NodeMatcher)}.
+     */
+    boolean matchesWithParallelChildren(NodeMatcher matcher) {
+        return matches(matcher);
+    }
+
+    /**
+     * Like {@link #matchesWithParallelChildren(NodeMatcher)}, but only matches the entries from index {@code from} (inclusive)
+     * to {@code to} (exclusive). This node is only read, so that multiple ranges can be matched concurrently.
+     */
+    abstract boolean matchesWithParallelChildren(NodeMatcher matcher, int from, int to);
+
     protected abstract void writeInternal(NodeWriter writer) throws IOException;
 
     protected abstract void writeFlatInternal(NodeWriter writer) throws IOException;
@@ -80,6 +118,11 @@ public abstract class ArrayNode extends Node {
 
     public abstract String getKeyAt(int index);
 
+    /**
+     * Returns the node at the given index without creating the nodes of the other entries like {@link #getNodeArray()} does.
+     */
+    public abstract Node getNodeAt(int index);
+
     @Override
     public String toDebugValue() {
         return NodeWriter.writeToString(this, Integer.MAX_VALUE, " ");
@@ -128,18 +171,29 @@ public abstract class ArrayNode extends Node {
 
     public static class Builder {
 
-        private final int maxSize;
+        private final boolean growable;
         private final NodeContext context;
-        private final int[] valueScalars;
-        private final List<Node> values;
+        private Node[] nodes;
+        private int nodeCount;
+        private int maxSize;
+        private int[] valueScalars;
         private int index;
         private int[] keyScalars;
 
         public Builder(NodeContext context, int maxSize) {
+            this(context, maxSize, false);
+        }
+
+        /**
+         * @param growable whether the builder should grow beyond {@code maxSize} instead of failing.
+         *                 Useful if only an upper bound for the size is known, which is much larger than the expected size
+         */
+        public Builder(NodeContext context, int maxSize, boolean growable) {
+            this.growable = growable;
             this.maxSize = maxSize;
             this.context = context;
             this.valueScalars = new int[maxSize];
-            this.values = new ArrayList<>(maxSize);
+            this.nodes = new Node[Math.min(maxSize, 4)];
         }
 
         private void initKeys() {
@@ -149,15 +203,24 @@ public abstract class ArrayNode extends Node {
             }
         }
 
+        private void grow() {
+            int oldSize = maxSize;
+            maxSize = Math.max(maxSize * 2, 8);
+            valueScalars = Arrays.copyOf(valueScalars, maxSize);
+            if (keyScalars != null) {
+                keyScalars = Arrays.copyOf(keyScalars, maxSize);
+                Arrays.fill(keyScalars, oldSize, maxSize, -1);
+            }
+        }
+
         public ArrayNode build() {
-            return new SimpleArrayNode(context, keyScalars, valueScalars, values);
+            return new SimpleArrayNode(context, keyScalars, valueScalars, nodes, 0, index);
         }
 
         public void putScalarValue(int scalarIndex) {
             checkFull();
 
             valueScalars[index] = scalarIndex;
-            values.add(null);
             index++;
         }
 
@@ -165,17 +228,16 @@ public abstract class ArrayNode extends Node {
             checkFull();
 
             initKeys();
+            internKey(keyIndex);
             keyScalars[index] = keyIndex;
             valueScalars[index] = scalarIndex;
-            values.add(null);
             index++;
         }
 
         public void putNodeValue(Node node) {
             checkFull();
 
-            valueScalars[index] = -1;
-            values.add(node);
+            valueScalars[index] = addNode(node);
             index++;
         }
 
@@ -183,13 +245,36 @@ public abstract class ArrayNode extends Node {
             checkFull();
 
             initKeys();
+            internKey(keyIndex);
             keyScalars[index] = keyIndex;
-            valueScalars[index] = -1;
-            values.add(node);
+            valueScalars[index] = addNode(node);
             index++;
         }
 
+        private void internKey(int keyIndex) {
+            var symbols = context.getKeySymbols();
+            if (symbols != null) {
+                symbols.intern(context, keyIndex);
+            }
+        }
+
+        /**
+         * @return the value scalar that refers to the added node
+         */
+        private int addNode(Node node) {
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(nodeCount * 2, 4));
+            }
+            nodes[nodeCount++] = node;
+            return -nodeCount;
+        }
+
         private void checkFull() {
+            if (isFull() && growable) {
+                grow();
+                return;
+            }
+
             if (isFull()) {
                 var string = build().toString();
                 throw new IndexOutOfBoundsException("Node " + string + " is already full");
@@ -0,0 +1,182 @@
+package com.crschnick.pdxu.io.node;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * An array node that is only created by the supplied loader once its contents are accessed for the first time.
+ * Used by the parser to skip building large subtrees that are never read.
+ */
+public final class DeferredArrayNode extends ArrayNode {
+
+    private Supplier<ArrayNode> loader;
+    private volatile ArrayNode node;
+
+    public DeferredArrayNode(Supplier<ArrayNode> loader) {
+        this.loader = loader;
+    }
+
+    private ArrayNode get() {
+        var n = node;
+        if (n != null) {
+            return n;
+        }
+
+        synchronized (this) {
+            if (node == null) {
+                node = loader.get();
+                // Release the loader and everything it references
+                loader = null;
+            }
+            return node;
+        }
+    }
+
+    public boolean isLoaded() {
+        return node != null;
+    }
+
+    @Override
+    public String toString() {
+        return isLoaded() ? node.toString() : "DeferredArrayNode";
+    }
+
+    @Override
+    public int size() {
+        return get().size();
+    }
+
+    @Override
+    public boolean isKeyAt(String key, int index) {
+        return get().isKeyAt(key, index);
+    }
+
+    @Override
+    public boolean isKeyAt(NodeKey key, int index) {
+        return get().isKeyAt(key, index);
+    }
+
+    @Override
+    public NodeCursor cursor() {
+        return get().cursor();
+    }
+
+    @Override
+    public ArrayNode splice(int begin, int length) {
+        return get().splice(begin, length);
+    }
+
+    @Override
+    protected void writeInternal(NodeWriter writer) throws IOException {
+        get().writeInternal(writer);
+    }
+
+    @Override
+    protected void writeFlatInternal(NodeWriter writer) throws IOException {
+        get().writeFlatInternal(writer);
+    }
+
+    @Override
+    protected boolean isFlat() {
+        return get().isFlat();
+    }
+
+    @Override
+    public String getKeyAt(int index) {
+        return get().getKeyAt(index);
+    }
+
+    @Override
+    public Node getNodeAt(int index) {
+        return get().getNodeAt(index);
+    }
+
+    @Override
+    public Descriptor describe() {
+        return get().describe();
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Node> c, boolean includeNullKeys) {
+        get().forEach(c, includeNullKeys);
+    }
+
+    @Override
+    public boolean forEach(BiPredicate<String, Node> c, boolean includeNullKeys) {
+        return get().forEach(c, includeNullKeys);
+    }
+
+    @Override
+    public List<Node> getNodeArray() {
+        return get().getNodeArray();
+    }
+
+    @Override
+    public boolean matches(NodeMatcher matcher) {
+        return get().matches(matcher);
+    }
+
+    @Override
+    public boolean matchesParallel(NodeMatcher matcher) {
+        return get().matchesParallel(matcher);
+    }
+
+    @Override
+    boolean matchesWithParallelChildren(NodeMatcher matcher) {
+        return get().matchesWithParallelChildren(matcher);
+    }
+
+    @Override
+    boolean matchesWithParallelChildren(NodeMatcher matcher, int from, int to) {
+        return get().matchesWithParallelChildren(matcher, from, to);
+    }
+
+    @Override
+    public boolean hasKey(String key) {
+        return get().hasKey(key);
+    }
+
+    @Override
+    public Node getNodeForKey(String key) {
+        return get().getNodeForKey(key);
+    }
+
+    @Override
+    public Optional<Node> getNodeForKeyIfExistent(String key) {
+        return get().getNodeForKeyIfExistent(key);
+    }
+
+    @Override
+    public List<Node> getNodesForKey(String key) {
+        return get().getNodesForKey(key);
+    }
+
+    @Override
+    public boolean hasKey(NodeKey key) {
+        return get().hasKey(key);
+    }
+
+    @Override
+    public Node getNodeForKey(NodeKey key) {
+        return get().getNodeForKey(key);
+    }
+
+    @Override
+    public Optional<Node> getNodeForKeyIfExistent(NodeKey key) {
+        return get().getNodeForKeyIfExistent(key);
+    }
+
+    @Override
+    public List<Node> getNodesForKey(NodeKey key) {
+        return get().getNodesForKey(key);
+    }
+
+    @Override
+    public Node copy() {
+        return get().copy();
+    }
+}
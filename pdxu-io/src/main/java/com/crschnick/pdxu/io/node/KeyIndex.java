@@ -0,0 +1,112 @@
+package com.crschnick.pdxu.io.node;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash index over the key literals of an array.
+ * Keys are hashed and compared directly on the raw bytes of the node context, so no strings are created.
+ * The slot of a key refers to its first entry, further entries with the same key are chained in order.
+ */
+final class KeyIndex {
+
+    private final NodeContext context;
+    private final int[] keyScalars;
+    private final int offset;
+    private final int[] slots;
+    private final int[] next;
+
+    private KeyIndex(NodeContext context, int[] keyScalars, int offset, int[] slots, int[] next) {
+        this.context = context;
+        this.keyScalars = keyScalars;
+        this.offset = offset;
+        this.slots = slots;
+        this.next = next;
+    }
+
+    static int hash(byte[] data, int begin, int length) {
+        int h = 1;
+        for (int i = begin; i < begin + length; i++) {
+            h = 31 * h + data[i];
+        }
+        // Spread the lower bits as the table size is a power of two
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Creates an index over the keys in the range of the given size starting at the offset.
+     * The entry indices used by the index are relative to the offset.
+     */
+    static KeyIndex create(NodeContext context, int[] keyScalars, int offset, int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        int[] slots = new int[capacity];
+        int[] next = new int[size];
+
+        // Insert in reverse, so that the slot always points to the first entry and the chains are in order
+        for (int i = size - 1; i >= 0; i--) {
+            int keyScalar = keyScalars[offset + i];
+            if (keyScalar == -1) {
+                next[i] = -1;
+                continue;
+            }
+
+            int begin = context.getLiteralsBegin()[keyScalar];
+            int length = context.getLiteralLength(keyScalar);
+            int slot = hash(context.getData(), begin, length) & mask;
+            while (true) {
+                int entry = slots[slot] - 1;
+                if (entry == -1) {
+                    next[i] = -1;
+                    slots[slot] = i + 1;
+                    break;
+                }
+
+                if (isKeyAt(context, keyScalars[offset + entry], context.getData(), begin, length)) {
+                    next[i] = entry;
+                    slots[slot] = i + 1;
+                    break;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+        }
+        return new KeyIndex(context, keyScalars, offset, slots, next);
+    }
+
+    private static boolean isKeyAt(NodeContext context, int keyScalar, byte[] key, int begin, int length) {
+        if (context.getLiteralLength(keyScalar) != length) {
+            return false;
+        }
+
+        int start = context.getLiteralsBegin()[keyScalar];
+        return Arrays.equals(context.getData(), start, start + length, key, begin, begin + length);
+    }
+
+    /**
+     * @param hash the hash of the key as computed by {@link #hash(byte[], int, int)}
+     * @return the index of the first entry with the given key or -1 if there is none
+     */
+    int getFirst(byte[] key, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            int entry = slots[slot] - 1;
+            if (entry == -1) {
+                return -1;
+            }
+
+            if (isKeyAt(context, keyScalars[offset + entry], key, 0, key.length)) {
+                return entry;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the index of the next entry with the same key as the given entry or -1 if there is none
+     */
+    int getNext(int entry) {
+        return next[entry];
+    }
+}
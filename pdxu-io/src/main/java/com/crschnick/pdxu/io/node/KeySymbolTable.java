@@ -0,0 +1,174 @@
+package com.crschnick.pdxu.io.node;
+
+import java.util.Arrays;
+
+/**
+ * Maps every distinct key of a node context to a small symbol id.
+ * Keys with the same symbol can be compared with an int comparison and share one evaluated string.
+ * The table is filled by the parser while the nodes are created and must not be modified afterwards.
+ */
+public final class KeySymbolTable {
+
+    private final int[] literalSymbols;
+    private int[] slots;
+    private int[] symbolLiterals;
+    private int[] symbolHashes;
+    private String[] names;
+    private int symbolCount;
+    private long keyCount;
+    private long keyBytes;
+    private long symbolBytes;
+
+    public KeySymbolTable(int literalsCount) {
+        this.literalSymbols = new int[literalsCount];
+        this.slots = new int[64];
+        this.symbolLiterals = new int[32];
+        this.symbolHashes = new int[32];
+        this.names = new String[32];
+    }
+
+    /**
+     * Assigns the key at the given literal index its symbol, creating a new one if the key was not seen before.
+     *
+     * @return the symbol of the key
+     */
+    public int intern(NodeContext context, int literalIndex) {
+        int existing = literalSymbols[literalIndex] - 1;
+        if (existing != -1) {
+            return existing;
+        }
+
+        var data = context.getData();
+        int begin = context.getLiteralsBegin()[literalIndex];
+        int length = context.getLiteralLength(literalIndex);
+        int hash = KeyIndex.hash(data, begin, length);
+        keyCount++;
+        keyBytes += length;
+
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            int symbol = slots[slot] - 1;
+            if (symbol == -1) {
+                symbol = addSymbol(literalIndex, hash, length);
+                // Lookups have to use the grown table
+                if (symbolCount * 2 > slots.length) {
+                    rehash();
+                }
+                literalSymbols[literalIndex] = symbol + 1;
+                return symbol;
+            }
+
+            if (symbolHashes[symbol] == hash && isSymbol(context, symbol, data, begin, length)) {
+                literalSymbols[literalIndex] = symbol + 1;
+                return symbol;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int addSymbol(int literalIndex, int hash, int length) {
+        if (symbolCount == symbolLiterals.length) {
+            symbolLiterals = Arrays.copyOf(symbolLiterals, symbolCount * 2);
+            symbolHashes = Arrays.copyOf(symbolHashes, symbolCount * 2);
+            names = Arrays.copyOf(names, symbolCount * 2);
+        }
+
+        int symbol = symbolCount++;
+        symbolLiterals[symbol] = literalIndex;
+        symbolHashes[symbol] = hash;
+        symbolBytes += length;
+        insert(slots, symbol);
+        return symbol;
+    }
+
+    private void insert(int[] table, int symbol) {
+        int mask = table.length - 1;
+        int slot = symbolHashes[symbol] & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = symbol + 1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        for (int i = 0; i < symbolCount; i++) {
+            insert(slots, i);
+        }
+    }
+
+    private boolean isSymbol(NodeContext context, int symbol, byte[] key, int begin, int length) {
+        int literal = symbolLiterals[symbol];
+        int start = context.getLiteralsBegin()[literal];
+        return Arrays.equals(context.getData(), start, start + context.getLiteralLength(literal), key, begin, begin + length);
+    }
+
+    /**
+     * @return the symbol of the key at the given literal index or -1 if the literal is not a key
+     */
+    public int getSymbol(int literalIndex) {
+        return literalSymbols[literalIndex] - 1;
+    }
+
+    /**
+     * @param hash the hash of the key as computed by {@link NodeKey#getHash(java.nio.charset.Charset)}
+     * @return the symbol of the given encoded key or -1 if no key of the context is equal to it
+     */
+    public int lookup(NodeContext context, byte[] key, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            int symbol = slots[slot] - 1;
+            if (symbol == -1) {
+                return -1;
+            }
+
+            if (symbolHashes[symbol] == hash && isSymbol(context, symbol, key, 0, key.length)) {
+                return symbol;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the evaluated key of the symbol, which is only created once
+     */
+    String getName(NodeContext context, int symbol) {
+        // Races only cause the name to be evaluated more than once
+        var name = names[symbol];
+        if (name == null) {
+            name = StringValues.unescapeScalarValue(context, symbolLiterals[symbol]);
+            names[symbol] = name;
+        }
+        return name;
+    }
+
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Creates a summary of how much memory is saved by sharing the key strings.
+     * The string sizes are estimates for compact strings on a 64-bit JVM with compressed pointers.
+     */
+    public String createMemoryReport() {
+        long withoutTable = estimateStringSize(keyCount, keyBytes);
+        long withTable = estimateStringSize(symbolCount, symbolBytes);
+        long tableSize = 4L * literalSymbols.length + 4L * slots.length + 12L * symbolLiterals.length;
+        return String.format("%d keys with %d distinct keys, key strings take ~%d KB without and ~%d KB with shared symbols, " +
+                        "the symbol table takes ~%d KB",
+                keyCount, symbolCount, withoutTable / 1000, withTable / 1000, tableSize / 1000);
+    }
+
+    private static long estimateStringSize(long count, long bytes) {
+        // String object, byte array header and padding
+        return count * (24 + 16 + 4) + bytes;
+    }
+}
@@ -1,6 +1,7 @@
 package com.crschnick.pdxu.io.node;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -8,124 +9,199 @@ import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
 
+/**
+ * The concatenation of two array nodes, which can be linked array nodes themselves.
+ * Linked array nodes form a persistent balanced tree, which is used to apply replacements to array nodes.
+ * A replacement only creates a logarithmic amount of new nodes and shares all unchanged parts with the original node.
+ */
 public final class LinkedArrayNode extends ArrayNode {
 
-    private final List<ArrayNode> arrayNodes;
+    private final ArrayNode left;
+    private final ArrayNode right;
+    private final int depth;
+    private int size = -1;
     private List<Node> joined;
 
     public LinkedArrayNode(List<ArrayNode> arrayNodes) {
-        this.arrayNodes = new ArrayList<>(arrayNodes);
+        this(build(arrayNodes, 0, (arrayNodes.size() + 1) / 2), build(arrayNodes, (arrayNodes.size() + 1) / 2, arrayNodes.size()));
+    }
+
+    private LinkedArrayNode(ArrayNode left, ArrayNode right) {
+        this.left = left;
+        this.right = right;
+        this.depth = Math.max(getDepth(left), getDepth(right)) + 1;
+    }
+
+    private static ArrayNode build(List<ArrayNode> arrayNodes, int begin, int end) {
+        if (begin == end) {
+            return ArrayNode.array(List.of());
+        }
+
+        if (end - begin == 1) {
+            return arrayNodes.get(begin);
+        }
+
+        int mid = (begin + end) >>> 1;
+        return concat(build(arrayNodes, begin, mid), build(arrayNodes, mid, end));
+    }
+
+    private static int getDepth(ArrayNode node) {
+        return node instanceof LinkedArrayNode l ? l.depth : 0;
+    }
+
+    /**
+     * Concatenates two array nodes while keeping the resulting tree balanced.
+     */
+    static LinkedArrayNode concat(ArrayNode left, ArrayNode right) {
+        int leftDepth = getDepth(left);
+        int rightDepth = getDepth(right);
+        if (leftDepth > rightDepth + 1) {
+            var l = (LinkedArrayNode) left;
+            return balance(l.left, concat(l.right, right));
+        }
+        if (rightDepth > leftDepth + 1) {
+            var r = (LinkedArrayNode) right;
+            return balance(concat(left, r.left), r.right);
+        }
+        return new LinkedArrayNode(left, right);
+    }
+
+    private static LinkedArrayNode balance(ArrayNode left, ArrayNode right) {
+        int leftDepth = getDepth(left);
+        int rightDepth = getDepth(right);
+        if (leftDepth > rightDepth + 1) {
+            var l = (LinkedArrayNode) left;
+            if (getDepth(l.left) >= getDepth(l.right)) {
+                return new LinkedArrayNode(l.left, new LinkedArrayNode(l.right, right));
+            }
+
+            var lr = (LinkedArrayNode) l.right;
+            return new LinkedArrayNode(new LinkedArrayNode(l.left, lr.left), new LinkedArrayNode(lr.right, right));
+        }
+
+        if (rightDepth > leftDepth + 1) {
+            var r = (LinkedArrayNode) right;
+            if (getDepth(r.right) >= getDepth(r.left)) {
+                return new LinkedArrayNode(new LinkedArrayNode(left, r.left), r.right);
+            }
+
+            var rl = (LinkedArrayNode) r.left;
+            return new LinkedArrayNode(new LinkedArrayNode(left, rl.left), new LinkedArrayNode(rl.right, r.right));
+        }
+
+        return new LinkedArrayNode(left, right);
     }
 
     @Override
     public String toString() {
-        return "LinkedArrayNode(" + getNodeArray().size() + ")";
+        return "LinkedArrayNode(" + size() + ")";
     }
 
     @Override
     public Descriptor describe() {
-        return arrayNodes.get(0).describe();
+        return left.describe();
     }
 
     @Override
     public void forEach(BiConsumer<String, Node> c, boolean includeNullKeys) {
-        for (var ar : arrayNodes) {
-            ar.forEach(c, includeNullKeys);
-        }
+        left.forEach(c, includeNullKeys);
+        right.forEach(c, includeNullKeys);
     }
 
     @Override
     public int size() {
-        return arrayNodes.stream().mapToInt(ArrayNode::size).sum();
+        // Computed lazily, as determining the size of deferred parts requires loading them
+        if (size == -1) {
+            size = left.size() + right.size();
+        }
+        return size;
     }
 
     @Override
     public boolean isKeyAt(String key, int index) {
-        int list = getArrayNodeForIndex(index);
-        return arrayNodes.get(list).isKeyAt(key, getLocalIndex(list, index));
+        int leftSize = left.size();
+        return index < leftSize ? left.isKeyAt(key, index) : right.isKeyAt(key, index - leftSize);
     }
 
     @Override
-    public ArrayNode splice(int begin, int length) {
-        int ls = getArrayNodeForIndex(begin);
-        // Use inclusive end index
-        int le = getArrayNodeForIndex(begin + length - 1);
-
-        // If only one sublist needs to be spliced, it can be done easily
-        if (ls == le) {
-            var b = getLocalIndex(ls, begin);
-            var e = getLocalIndex(le, begin + length);
-            return arrayNodes.get(ls).splice(b, e - b);
-        }
-
-        List<ArrayNode> spliced = new ArrayList<>();
+    public boolean isKeyAt(NodeKey key, int index) {
+        int leftSize = left.size();
+        return index < leftSize ? left.isKeyAt(key, index) : right.isKeyAt(key, index - leftSize);
+    }
 
-        var localStartFirst = getLocalIndex(ls, begin);
-        spliced.add(arrayNodes.get(ls).splice(localStartFirst, arrayNodes.get(ls).size() - localStartFirst));
+    @Override
+    public NodeCursor cursor() {
+        return new Cursor();
+    }
 
-        for (int i = ls + 1; i <= le - 1; i++) {
-            spliced.add(arrayNodes.get(i));
+    @Override
+    public ArrayNode splice(int begin, int length) {
+        if (begin < 0 || length < 0 || begin + length > size()) {
+            throw new IllegalArgumentException();
         }
 
-        var localEndLast = getLocalIndex(le, begin + length);
-        spliced.add(arrayNodes.get(le).splice(0, localEndLast));
-        return new LinkedArrayNode(spliced);
-    }
-
-    private int getLocalIndex(int listIndex, int absIndex) {
-        int current = 0;
-        for (int i = 0; i < listIndex; i++) {
-            current += arrayNodes.get(i).size();
+        // Share this subtree if it is completely contained
+        if (begin == 0 && length == size()) {
+            return this;
         }
-        return absIndex - current;
-    }
 
-    private int getArrayNodeForIndex(int index) {
-        int current = 0;
-        for (var a : arrayNodes) {
-            if (index < current + a.size()) {
-                return arrayNodes.indexOf(a);
-            } else {
-                current += a.size();
-            }
+        int leftSize = left.size();
+        if (begin + length <= leftSize) {
+            return left.splice(begin, length);
+        }
+        if (begin >= leftSize) {
+            return right.splice(begin - leftSize, length);
         }
-        throw new IllegalArgumentException();
+
+        return concat(left.splice(begin, leftSize - begin), right.splice(0, begin + length - leftSize));
     }
 
     @Override
     protected void writeInternal(NodeWriter writer) throws IOException {
-        for (var n : arrayNodes) {
-            n.writeInternal(writer);
-        }
+        left.writeInternal(writer);
+        right.writeInternal(writer);
     }
 
     @Override
     protected void writeFlatInternal(NodeWriter writer) throws IOException {
-        for (var n : arrayNodes) {
-            n.writeFlatInternal(writer);
-        }
+        left.writeFlatInternal(writer);
+        right.writeFlatInternal(writer);
     }
 
     @Override
     protected boolean isFlat() {
-        return arrayNodes.stream().allMatch(ArrayNode::isFlat);
+        return left.isFlat() && right.isFlat();
     }
 
     @Override
     public String getKeyAt(int index) {
-        int list = getArrayNodeForIndex(index);
-        return arrayNodes.get(list).getKeyAt(getLocalIndex(list, index));
+        int leftSize = left.size();
+        return index < leftSize ? left.getKeyAt(index) : right.getKeyAt(index - leftSize);
+    }
+
+    @Override
+    public Node getNodeAt(int index) {
+        int leftSize = left.size();
+        return index < leftSize ? left.getNodeAt(index) : right.getNodeAt(index - leftSize);
+    }
+
+    private void collectNodes(List<Node> list) {
+        for (var n : List.of(left, right)) {
+            if (n instanceof LinkedArrayNode l) {
+                l.collectNodes(list);
+            } else {
+                list.addAll(n.getNodeArray());
+            }
+        }
     }
 
     @Override
     public List<Node> getNodeArray() {
         // Lazy initialize joined list
         if (joined == null) {
-            this.joined = new ArrayList<>();
-            for (var n : arrayNodes) {
-                joined.addAll(n.getNodeArray());
-            }
-            this.joined = Collections.unmodifiableList(joined);
+            var list = new ArrayList<Node>();
+            collectNodes(list);
+            this.joined = Collections.unmodifiableList(list);
         }
 
         return joined;
@@ -133,68 +209,164 @@ public final class LinkedArrayNode extends ArrayNode {
 
     @Override
     public boolean matches(NodeMatcher matcher) {
-        for (var n : arrayNodes) {
-            if (n.matches(matcher)) {
-                return true;
-            }
+        return left.matches(matcher) || right.matches(matcher);
+    }
+
+    @Override
+    boolean matchesWithParallelChildren(NodeMatcher matcher) {
+        return left.matchesWithParallelChildren(matcher) || right.matchesWithParallelChildren(matcher);
+    }
+
+    @Override
+    boolean matchesWithParallelChildren(NodeMatcher matcher, int from, int to) {
+        int leftSize = left.size();
+        if (from < leftSize && left.matchesWithParallelChildren(matcher, from, Math.min(to, leftSize))) {
+            return true;
         }
-        return false;
+        return to > leftSize && right.matchesWithParallelChildren(matcher, Math.max(from - leftSize, 0), to - leftSize);
     }
 
     @Override
     public boolean hasKey(String key) {
-        for (var ar : arrayNodes) {
-            if (ar.hasKey(key)) {
-                return true;
-            }
-        }
-        return false;
+        return left.hasKey(key) || right.hasKey(key);
     }
 
     @Override
     public Node getNodeForKey(String key) {
-        for (var ar : arrayNodes) {
-            var r = ar.getNodeForKeyIfExistent(key);
-            if (r.isPresent()) {
-                return r.get();
-            }
-        }
-        throw new IllegalArgumentException("Invalid key " + key);
+        return getNodeForKeyIfExistent(key).orElseThrow(() -> new IllegalArgumentException("Invalid key " + key));
     }
 
     @Override
     public Optional<Node> getNodeForKeyIfExistent(String key) {
-        for (var ar : arrayNodes) {
-            var r = ar.getNodeForKeyIfExistent(key);
-            if (r.isPresent()) {
-                return r;
-            }
-        }
-        return Optional.empty();
+        var r = left.getNodeForKeyIfExistent(key);
+        return r.isPresent() ? r : right.getNodeForKeyIfExistent(key);
+    }
+
+    @Override
+    public boolean hasKey(NodeKey key) {
+        return left.hasKey(key) || right.hasKey(key);
+    }
+
+    @Override
+    public Node getNodeForKey(NodeKey key) {
+        return getNodeForKeyIfExistent(key).orElseThrow(() -> new IllegalArgumentException("Invalid key " + key));
+    }
+
+    @Override
+    public Optional<Node> getNodeForKeyIfExistent(NodeKey key) {
+        var r = left.getNodeForKeyIfExistent(key);
+        return r.isPresent() ? r : right.getNodeForKeyIfExistent(key);
     }
 
     @Override
     public Node copy() {
-        return new LinkedArrayNode(arrayNodes.stream().map(arrayNode -> arrayNode.copy().getArrayNode()).toList());
+        return new LinkedArrayNode(left.copy().getArrayNode(), right.copy().getArrayNode());
     }
 
     @Override
     public boolean forEach(BiPredicate<String, Node> c, boolean includeNullKeys) {
-        for (var ar : arrayNodes) {
-            if (!ar.forEach(c, includeNullKeys)) {
-                return false;
-            }
-        }
-        return true;
+        return left.forEach(c, includeNullKeys) && right.forEach(c, includeNullKeys);
     }
 
     @Override
     public List<Node> getNodesForKey(String key) {
-        List<Node> found = new ArrayList<>();
-        for (var ar : arrayNodes) {
-            var r = ar.getNodesForKey(key);
-            found.addAll(r);
-        }
+        List<Node> found = new ArrayList<>(left.getNodesForKey(key));
+        found.addAll(right.getNodesForKey(key));
+        return found;
+    }
+
+    @Override
+    public List<Node> getNodesForKey(NodeKey key) {
+        List<Node> found = new ArrayList<>(left.getNodesForKey(key));
+        found.addAll(right.getNodesForKey(key));
         return found;
     }
+
+    private final class Cursor extends NodeCursor {
+
+        private NodeCursor current = left.cursor();
+        private int offset;
+        private boolean inRight;
+
+        @Override
+        public boolean next() {
+            if (current.next()) {
+                return true;
+            }
+
+            if (inRight) {
+                return false;
+            }
+
+            inRight = true;
+            offset = left.size();
+            current = right.cursor();
+            return current.next();
+        }
+
+        @Override
+        public int getIndex() {
+            return offset + current.getIndex();
+        }
+
+        @Override
+        public boolean hasKey() {
+            return current.hasKey();
+        }
+
+        @Override
+        public String getKey() {
+            return current.getKey();
+        }
+
+        @Override
+        public byte[] getKeyData() {
+            return current.getKeyData();
+        }
+
+        @Override
+        public Charset getKeyCharset() {
+            return current.getKeyCharset();
+        }
+
+        @Override
+        public int getKeyBegin() {
+            return current.getKeyBegin();
+        }
+
+        @Override
+        public int getKeyLength() {
+            return current.getKeyLength();
+        }
+
+        @Override
+        public boolean keyEquals(byte[] data, int begin, int length) {
+            return current.keyEquals(data, begin, length);
+        }
+
+        @Override
+        public boolean keyEquals(NodeKey key) {
+            return current.keyEquals(key);
+        }
+
+        @Override
+        public boolean isValue() {
+            return current.isValue();
+        }
+
+        @Override
+        public boolean isArray() {
+            return current.isArray();
+        }
+
+        @Override
+        public long getLong() {
+            return current.getLong();
+        }
+
+        @Override
+        public Node getNode() {
+            return current.getNode();
+        }
+    }
 }
@@ -70,6 +70,13 @@ public abstract class Node {
 
     public abstract boolean matches(NodeMatcher matcher);
 
+    /**
+     * Like {@link #matches(NodeMatcher)}, but searches large arrays in parallel.
+     */
+    public boolean matchesParallel(NodeMatcher matcher) {
+        return matches(matcher);
+    }
+
     public boolean hasKey(String key) {
         throw new UnsupportedOperationException();
     }
@@ -78,6 +85,25 @@ public abstract class Node {
         throw new UnsupportedOperationException();
     }
 
+    public boolean hasKey(NodeKey key) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Node getNodeForKey(NodeKey key) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Node getNodeForKeys(NodeKey... keys) {
+        var current = this;
+        for (var key : keys) {
+            current = current.getNodeForKeyIfExistent(key).orElse(null);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
     public Node getNodeForKeys(String... keys) {
         var current = this;
         for (var key : keys) {
@@ -97,12 +123,20 @@ public abstract class Node {
         throw new UnsupportedOperationException();
     }
 
+    public Optional<Node> getNodeForKeyIfExistent(NodeKey key) {
+        throw new UnsupportedOperationException();
+    }
+
     public abstract Node copy();
 
     public List<Node> getNodesForKey(String key) {
         throw new UnsupportedOperationException();
     }
 
+    public List<Node> getNodesForKey(NodeKey key) {
+        throw new UnsupportedOperationException();
+    }
+
     public enum KeyType {
         NONE,
         ALL,
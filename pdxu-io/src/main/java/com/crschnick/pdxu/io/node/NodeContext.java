@@ -5,18 +5,26 @@ import java.nio.charset.StandardCharsets;
 
 public final class NodeContext {
 
+    private static final byte DOUBLE_QUOTE_CHAR = 34;
+
     private final byte[] data;
     private final Charset charset;
     private final int[] literalsBegin;
     private final short[] literalsLength;
+    private final int[] longLiteralsLength;
     private final int literalsCount;
+    private final KeySymbolTable keySymbols;
+    private volatile ScalarSearchIndex searchIndex;
+    private volatile boolean modified;
 
     public NodeContext() {
         this.data = null;
         this.charset = StandardCharsets.UTF_8;
         this.literalsBegin = null;
         this.literalsLength = null;
+        this.longLiteralsLength = null;
         this.literalsCount = 0;
+        this.keySymbols = null;
     }
 
     public NodeContext(String data, boolean quoted) {
@@ -24,24 +32,56 @@ public final class NodeContext {
                 StringValues.escapeStringContent(data).getBytes();
         this.charset = StandardCharsets.UTF_8;
         this.literalsBegin = new int[]{0};
-        this.literalsLength = new short[]{(short) this.data.length};
+        if (this.data.length <= Short.MAX_VALUE) {
+            this.literalsLength = new short[]{(short) this.data.length};
+            this.longLiteralsLength = null;
+        } else {
+            this.literalsLength = new short[]{-1};
+            this.longLiteralsLength = new int[]{this.data.length};
+        }
         this.literalsCount = 1;
+        this.keySymbols = null;
     }
 
     public NodeContext(byte[] data, Charset charset, int[] literalsBegin, short[] literalsLength, int literalsCount) {
+        this(data, charset, literalsBegin, literalsLength, null, literalsCount);
+    }
+
+    /**
+     * @param longLiteralsLength the lengths of literals that are too long for a short.
+     *                           A negative entry {@code l} in {@code literalsLength} refers to index {@code -l - 1} of this array
+     */
+    public NodeContext(byte[] data, Charset charset, int[] literalsBegin, short[] literalsLength, int[] longLiteralsLength, int literalsCount) {
+        this(data, charset, literalsBegin, literalsLength, longLiteralsLength, literalsCount, null);
+    }
+
+    /**
+     * @param keySymbols an empty symbol table that is filled with the keys of this context once nodes are created, or null
+     */
+    public NodeContext(byte[] data, Charset charset, int[] literalsBegin, short[] literalsLength, int[] longLiteralsLength, int literalsCount,
+                       KeySymbolTable keySymbols) {
         this.data = data;
         this.charset = charset;
         this.literalsBegin = literalsBegin;
         this.literalsLength = literalsLength;
+        this.longLiteralsLength = longLiteralsLength;
         this.literalsCount = literalsCount;
+        this.keySymbols = keySymbols;
     }
 
     public String evaluate(int literalIndex) {
+        if (keySymbols != null) {
+            int symbol = keySymbols.getSymbol(literalIndex);
+            if (symbol != -1) {
+                return keySymbols.getName(this, symbol);
+            }
+        }
+
         return StringValues.unescapeScalarValue(this, literalIndex);
     }
 
     public String evaluateRaw(int literalIndex) {
-        return new String(getData(), literalsBegin[literalIndex], literalsLength[literalIndex], getCharset());
+        return new String(getData(), literalsBegin[literalIndex], getLiteralLength(literalIndex), getCharset());
     }
 
     public byte[] getData() {
@@ -56,11 +96,95 @@ public final class NodeContext {
         return literalsBegin;
     }
 
-    public short[] getLiteralsLength() {
-        return literalsLength;
+    public int getLiteralLength(int literalIndex) {
+        short length = literalsLength[literalIndex];
+        return length >= 0 ? length : longLiteralsLength[-length - 1];
     }
 
     public int getLiteralsCount() {
         return literalsCount;
     }
+
+    /**
+     * @return the symbol table of the keys in this context or null if keys are not interned
+     */
+    public KeySymbolTable getKeySymbols() {
+        return keySymbols;
+    }
+
+    /**
+     * Returns the search index over the literals of this context, which is built on the first call.
+     */
+    public ScalarSearchIndex getSearchIndex() {
+        var index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (searchIndex == null) {
+                    searchIndex = ScalarSearchIndex.create(this);
+                }
+                index = searchIndex;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Marks that a node created from this context was changed in place, see {@link ValueNode#set(ValueNode)}.
+     * The literal ranges of nodes can then no longer be used to rule out matches with the search index.
+     */
+    void markModified() {
+        modified = true;
+    }
+
+    boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Classifies a literal without creating a string.
+     * This is not cached, as a cache for all literals would take more memory than scanning the few bytes again.
+     */
+    Node.ValueType getValueType(int literalIndex) {
+        int begin = literalsBegin[literalIndex];
+        int length = getLiteralLength(literalIndex);
+        int end = begin + length;
+        if (length >= 2 && data[begin] == DOUBLE_QUOTE_CHAR && data[end - 1] == DOUBLE_QUOTE_CHAR) {
+            return Node.ValueType.TEXT;
+        }
+
+        if (length == 3 && data[begin] == 'y' && data[begin + 1] == 'e' && data[begin + 2] == 's') {
+            return Node.ValueType.BOOLEAN;
+        }
+        if (length == 2 && data[begin] == 'n' && data[begin + 1] == 'o') {
+            return Node.ValueType.BOOLEAN;
+        }
+
+        // Matches [+-]?[0-9]+ and [+-]?[0-9]+[.,][0-9]+
+        int i = begin;
+        if (i < end && (data[i] == '+' || data[i] == '-')) {
+            i++;
+        }
+
+        int digitsBegin = i;
+        while (i < end && data[i] >= '0' && data[i] <= '9') {
+            i++;
+        }
+        if (i == digitsBegin) {
+            return Node.ValueType.UNQUOTED_STRING;
+        }
+        if (i == end) {
+            return Node.ValueType.INTEGER;
+        }
+
+        if (data[i] != '.' && data[i] != ',') {
+            return Node.ValueType.UNQUOTED_STRING;
+        }
+        i++;
+
+        int fractionBegin = i;
+        while (i < end && data[i] >= '0' && data[i] <= '9') {
+            i++;
+        }
+        return i != fractionBegin && i == end ? Node.ValueType.FLOATING_POINT : Node.ValueType.UNQUOTED_STRING;
+    }
 }
@@ -0,0 +1,73 @@
+package com.crschnick.pdxu.io.node;
+
+import java.nio.charset.Charset;
+
+/**
+ * A forward cursor over the entries of an array node.
+ * Moving the cursor and inspecting keys and scalar values does not create any strings or nodes,
+ * which makes it suitable for scanning large arrays.
+ * A cursor starts before the first entry, so {@link #next()} has to be called before accessing an entry.
+ */
+public abstract class NodeCursor {
+
+    /**
+     * Moves the cursor to the next entry.
+     *
+     * @return whether there is a next entry
+     */
+    public abstract boolean next();
+
+    /**
+     * @return the index of the current entry in the array node
+     */
+    public abstract int getIndex();
+
+    public abstract boolean hasKey();
+
+    /**
+     * @return the evaluated key of the current entry or {@code null} if it has no key
+     */
+    public abstract String getKey();
+
+    /**
+     * @return the data array that contains the raw key bytes of the current entry
+     */
+    public abstract byte[] getKeyData();
+
+    /**
+     * @return the charset of the raw key bytes of the current entry, which can differ between the parts of a linked array node
+     */
+    public abstract Charset getKeyCharset();
+
+    public abstract int getKeyBegin();
+
+    public abstract int getKeyLength();
+
+    /**
+     * Compares the raw key bytes of the current entry with the given range of bytes.
+     * Entries without a key never match.
+     */
+    public abstract boolean keyEquals(byte[] data, int begin, int length);
+
+    public abstract boolean keyEquals(NodeKey key);
+
+    /**
+     * @return whether the current entry is a value
+     */
+    public abstract boolean isValue();
+
+    /**
+     * @return whether the current entry is an array
+     */
+    public abstract boolean isArray();
+
+    /**
+     * Parses the current value like {@link Node#getLong()} without creating a node for it.
+     */
+    public abstract long getLong();
+
+    /**
+     * @return the node of the current entry, which is created if required
+     */
+    public abstract Node getNode();
+}
@@ -0,0 +1,79 @@
+package com.crschnick.pdxu.io.node;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A key handle that caches the encoded bytes and hash of a key for every charset it is used with.
+ * Looking up nodes with a key handle does not allocate or encode anything once the handle has been used with a charset.
+ * Keys that are used repeatedly, e.g. constant keys in loops, should be created once with {@link #of(String)} and kept in a constant.
+ */
+public final class NodeKey {
+
+    private final String name;
+    private volatile Encoding[] encodings;
+
+    private NodeKey(String name) {
+        this.name = name;
+        var utf8 = name.getBytes(StandardCharsets.UTF_8);
+        this.encodings = new Encoding[]{new Encoding(StandardCharsets.UTF_8, utf8, KeyIndex.hash(utf8, 0, utf8.length))};
+    }
+
+    /**
+     * Creates a key handle. Handles are not interned, so handles for constant keys should be stored in a static field.
+     */
+    public static NodeKey of(String name) {
+        return new NodeKey(name);
+    }
+
+    private Encoding getEncoding(Charset charset) {
+        var current = encodings;
+        for (var e : current) {
+            if (e.charset().equals(charset)) {
+                return e;
+            }
+        }
+
+        // Copy on write, as keys are used with only a few charsets
+        var bytes = name.getBytes(charset);
+        var added = new Encoding(charset, bytes, KeyIndex.hash(bytes, 0, bytes.length));
+        var updated = new Encoding[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = added;
+        encodings = updated;
+        return added;
+    }
+
+    public byte[] getBytes(Charset charset) {
+        return getEncoding(charset).bytes();
+    }
+
+    public int getHash(Charset charset) {
+        return getEncoding(charset).hash();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof NodeKey k && name.equals(k.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private record Encoding(Charset charset, byte[] bytes, int hash) {
+    }
+}
@@ -3,51 +3,204 @@ package com.crschnick.pdxu.io.node;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
+/**
+ * Searches scalars for a string by scanning their raw bytes.
+ * Matchers can be used from multiple threads, see {@link Node#matchesParallel(NodeMatcher)}.
+ * <p>
+ * A matcher that uses the search index first finds all matching literals of a large context with its {@link ScalarSearchIndex}.
+ * Array nodes whose literals don't contain any of them are then skipped without scanning them.
+ */
 public abstract class NodeMatcher {
 
+    private static final int MIN_INDEXED_LITERALS = 1 << 16;
+
     protected final String matchString;
-    protected Charset currentCharset;
+    private final boolean useSearchIndex;
+    private volatile IndexedMatches indexedMatches;
 
     public NodeMatcher(String matchString) {
+        this(matchString, false);
+    }
+
+    public NodeMatcher(String matchString, boolean useSearchIndex) {
         this.matchString = matchString;
+        this.useSearchIndex = useSearchIndex;
     }
 
     public abstract boolean matchesScalar(NodeContext ctx, int index);
 
+    /**
+     * @return the encoded pattern with ASCII letters folded to lower case,
+     * or null if matches can't be found by searching for the folded pattern
+     */
+    byte[] getFoldedBytes(Charset charset) {
+        return null;
+    }
+
+    private record IndexedMatches(NodeContext context, int[] literals) {
+    }
+
+    boolean usesSearchIndex(NodeContext ctx) {
+        return useSearchIndex && ctx.getLiteralsCount() >= MIN_INDEXED_LITERALS && !ctx.isModified();
+    }
+
+    /**
+     * Checks with the search index whether any literal in the given range of the context matches.
+     *
+     * @return false if no literal in the range matches, true if one does or the range is unknown
+     */
+    boolean mayMatchLiterals(NodeContext ctx, int first, int last) {
+        if (first == -1 || last == -1) {
+            return true;
+        }
+
+        var m = indexedMatches;
+        if (m == null || m.context() != ctx) {
+            m = new IndexedMatches(ctx, ctx.getSearchIndex().findMatches(this));
+            indexedMatches = m;
+        }
+        return ScalarSearchIndex.containsAny(m.literals(), first, last);
+    }
+
+    private static byte[] fold(byte[] bytes) {
+        var folded = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            folded[i] = ScalarSearchIndex.fold(bytes[i]);
+        }
+        return folded;
+    }
+
+    /**
+     * Creates the skip table of the Boyer-Moore-Horspool algorithm.
+     * Every byte in the pattern except the last one can have multiple alternatives, e.g. upper and lower case.
+     */
+    private static int[] createSkipTable(byte[][] alternatives, int length) {
+        var skip = new int[256];
+        Arrays.fill(skip, length);
+        for (int j = 0; j < length - 1; j++) {
+            for (var a : alternatives) {
+                skip[a[j] & 0xFF] = length - 1 - j;
+            }
+        }
+        return skip;
+    }
+
     public static final class CaseInsenstiveMatcher extends NodeMatcher {
 
-        private final byte[][] lowerCases;
-        private final byte[][] upperCases;
-        private int byteSize;
+        /**
+         * The encoded pattern for one charset.
+         * If every character of the pattern has single byte upper and lower cases,
+         * the search can use a skip table. Otherwise, all positions are compared.
+         */
+        private record Pattern(Charset charset, byte[][] lowerCases, byte[][] upperCases, int byteSize,
+                               byte[] lowerBytes, byte[] upperBytes, int[] skip) {
+        }
+
+        private volatile Pattern pattern;
 
         public CaseInsenstiveMatcher(String matchString) {
             super(matchString);
-            lowerCases = new byte[matchString.length()][];
-            upperCases = new byte[matchString.length()][];
         }
 
-        private void updateBytes() {
+        public CaseInsenstiveMatcher(String matchString, boolean useSearchIndex) {
+            super(matchString, useSearchIndex);
+        }
+
+        private Pattern getPattern(Charset charset) {
+            var p = pattern;
+            if (p == null || !charset.equals(p.charset())) {
+                p = createPattern(charset);
+                pattern = p;
+            }
+            return p;
+        }
+
+        @Override
+        byte[] getFoldedBytes(Charset charset) {
+            var p = getPattern(charset);
+            if (p.skip() == null) {
+                return null;
+            }
+
+            // Both cases have to be folded to the same byte, which is not the case for non ASCII letters
+            var folded = fold(p.lowerBytes());
+            if (!Arrays.equals(folded, fold(p.upperBytes()))) {
+                return null;
+            }
+            return folded;
+        }
+
+        private Pattern createPattern(Charset charset) {
+            var lowerCases = new byte[matchString.length()][];
+            var upperCases = new byte[matchString.length()][];
+            boolean singleBytes = true;
             for (int i = 0; i < matchString.length(); ++i) {
                 char c = matchString.charAt(i);
-                var b1 = String.valueOf(c).toUpperCase().getBytes(currentCharset);
+                var b1 = String.valueOf(c).toUpperCase().getBytes(charset);
                 upperCases[i] = b1;
-                var b2 = String.valueOf(c).toLowerCase().getBytes(currentCharset);
+                var b2 = String.valueOf(c).toLowerCase().getBytes(charset);
                 lowerCases[i] = b2;
+                singleBytes &= b1.length == 1 && b2.length == 1;
             }
-            byteSize = matchString.getBytes(currentCharset).length;
+            int byteSize = matchString.getBytes(charset).length;
+
+            if (!singleBytes || byteSize != matchString.length()) {
+                return new Pattern(charset, lowerCases, upperCases, byteSize, null, null, null);
+            }
+
+            var lowerBytes = new byte[byteSize];
+            var upperBytes = new byte[byteSize];
+            for (int i = 0; i < byteSize; i++) {
+                lowerBytes[i] = lowerCases[i][0];
+                upperBytes[i] = upperCases[i][0];
+            }
+            var skip = createSkipTable(new byte[][]{lowerBytes, upperBytes}, byteSize);
+            return new Pattern(charset, lowerCases, upperCases, byteSize, lowerBytes, upperBytes, skip);
         }
 
         public boolean matchesScalar(NodeContext ctx, int index) {
-            if (!ctx.getCharset().equals(currentCharset)) {
-                currentCharset = ctx.getCharset();
-                updateBytes();
+            var p = getPattern(ctx.getCharset());
+            if (p.skip() != null) {
+                return containsSingleBytes(p, ctx.getData(), ctx.getLiteralsBegin()[index], ctx.getLiteralLength(index));
             }
+            return contains(p, ctx.getData(), ctx.getLiteralsBegin()[index], ctx.getLiteralLength(index));
+        }
 
-            return contains(ctx.getData(), ctx.getLiteralsBegin()[index], ctx.getLiteralsLength()[index]);
+        private static boolean containsSingleBytes(Pattern p, byte[] array, int start, int length) {
+            var lower = p.lowerBytes();
+            var upper = p.upperBytes();
+            int m = lower.length;
+            if (m == 0) {
+                return length >= 0;
+            }
+
+            var skip = p.skip();
+            int i = start;
+            int end = start + length - m;
+            while (i <= end) {
+                int j = m - 1;
+                while (j >= 0 && (array[i + j] == lower[j] || array[i + j] == upper[j])) {
+                    j--;
+                }
+                if (j < 0) {
+                    return true;
+                }
+
+                i += skip[array[i + m - 1] & 0xFF];
+            }
+            return false;
         }
 
-        private boolean contains(byte[] array, int start, short length) {
-            for (int i = start; i <= start + length - byteSize; ++i) {
+        private boolean contains(Pattern p, byte[] array, int start, int length) {
+            var lowerCases = p.lowerCases();
+            var upperCases = p.upperCases();
+            for (int i = start; i <= start + length - p.byteSize(); ++i) {
+                // Reject most positions by their first byte before comparing whole characters
+                var first = array[i];
+                if (lowerCases[0][0] != first && upperCases[0][0] != first) {
+                    continue;
+                }
+
                 boolean found = true;
 
                 int byteIndex = i;
@@ -73,35 +226,61 @@ public abstract class NodeMatcher {
 
     public static final class CaseSenstiveMatcher extends NodeMatcher {
 
-        private byte[] matchBytes;
+        private record Pattern(Charset charset, byte[] matchBytes, int[] skip) {
+        }
+
+        private volatile Pattern pattern;
 
         public CaseSenstiveMatcher(String matchString) {
             super(matchString);
         }
 
-        private boolean contains(byte[] array, int start, short length) {
-            for (int i = start; i <= start + length - matchBytes.length; ++i) {
-                boolean found = true;
-                for (int j = 0; j < matchBytes.length; ++j) {
-                    if (array[i + j] != matchBytes[j]) {
-                        found = false;
-                        break;
-                    }
+        public CaseSenstiveMatcher(String matchString, boolean useSearchIndex) {
+            super(matchString, useSearchIndex);
+        }
+
+        private Pattern getPattern(Charset charset) {
+            var p = pattern;
+            if (p == null || !charset.equals(p.charset())) {
+                var matchBytes = matchString.getBytes(charset);
+                p = new Pattern(charset, matchBytes, createSkipTable(new byte[][]{matchBytes}, matchBytes.length));
+                pattern = p;
+            }
+            return p;
+        }
+
+        @Override
+        byte[] getFoldedBytes(Charset charset) {
+            return fold(getPattern(charset).matchBytes());
+        }
+
+        private static boolean contains(Pattern p, byte[] array, int start, int length) {
+            var matchBytes = p.matchBytes();
+            int m = matchBytes.length;
+            if (m == 0) {
+                return length >= 0;
+            }
+
+            var skip = p.skip();
+            int i = start;
+            int end = start + length - m;
+            while (i <= end) {
+                int j = m - 1;
+                while (j >= 0 && array[i + j] == matchBytes[j]) {
+                    j--;
                 }
-                if (found) {
+                if (j < 0) {
                     return true;
                 }
+
+                i += skip[array[i + m - 1] & 0xFF];
             }
             return false;
         }
 
         public boolean matchesScalar(NodeContext ctx, int index) {
-            if (!ctx.getCharset().equals(currentCharset)) {
-                matchBytes = matchString.getBytes(ctx.getCharset());
-                currentCharset = ctx.getCharset();
-            }
-
-            return contains(ctx.getData(), ctx.getLiteralsBegin()[index], ctx.getLiteralsLength()[index]);
+            var p = getPattern(ctx.getCharset());
+            return contains(p, ctx.getData(), ctx.getLiteralsBegin()[index], ctx.getLiteralLength(index));
         }
     }
 }
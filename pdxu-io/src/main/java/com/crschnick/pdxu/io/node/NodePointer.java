@@ -1,13 +1,20 @@
 package com.crschnick.pdxu.io.node;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class NodePointer {
 
@@ -15,26 +22,66 @@ public final class NodePointer {
 
         Node tryMatch(Node root, Node n);
 
+        /**
+         * Returns all matches of this element for {@link #stream(Node)}.
+         * Elements that can only match a single node return the result of {@link #tryMatch(Node, Node)}.
+         * Nodes that are not arrays have no matches.
+         */
+        default Stream<Node> matchAll(Node root, Node n) {
+            if (!n.isArray()) {
+                return Stream.empty();
+            }
+
+            var found = tryMatch(root, n);
+            return found != null ? Stream.of(found) : Stream.empty();
+        }
+
+        /**
+         * @return whether this element can have more than one match in {@link #matchAll(Node, Node)}
+         */
+        default boolean isMultiMatch() {
+            return false;
+        }
+
         default String getKey(Node root, Node n) {
             return null;
         }
     }
 
-    public static final record NameElement(String name) implements Element {
+    public static final record NameElement(NodeKey key) implements Element {
+
+        public NameElement(String name) {
+            this(NodeKey.of(name));
+        }
+
+        public String name() {
+            return key.getName();
+        }
 
         @Override
         public Node tryMatch(Node root, Node n) {
-            return n.getNodeForKeyIfExistent(name).orElse(null);
+            return n.getNodeForKeyIfExistent(key).orElse(null);
+        }
+
+        @Override
+        public Stream<Node> matchAll(Node root, Node n) {
+            // Keys can occur multiple times in an array
+            return n.isArray() ? n.getNodesForKey(key).stream() : Stream.empty();
+        }
+
+        @Override
+        public boolean isMultiMatch() {
+            return true;
         }
 
         @Override
         public String getKey(Node root, Node n) {
-            return name;
+            return key.getName();
         }
 
         @Override
         public String toString() {
-            return name;
+            return key.getName();
         }
     }
 
@@ -42,16 +89,18 @@ public final class NodePointer {
 
         @Override
         public Node tryMatch(Node root, Node n) {
-            if (n.getNodeArray().size() > index && index >= 0) {
-                return n.getNodeArray().get(index);
+            var array = n.getArrayNode();
+            if (array.size() > index && index >= 0) {
+                return array.getNodeAt(index);
             }
             return null;
         }
 
         @Override
         public String getKey(Node root, Node n) {
-            if (n.getNodeArray().size() > index && index >= 0) {
-                return n.getArrayNode().getKeyAt(index);
+            var array = n.getArrayNode();
+            if (array.size() > index && index >= 0) {
+                return array.getKeyAt(index);
             }
             return null;
         }
@@ -62,6 +111,124 @@ public final class NodePointer {
         }
     }
 
+    /**
+     * Matches any element of an array. When evaluated directly, the first element is returned.
+     * When streamed, all elements are matched.
+     * Mostly useful to declare paths for {@link com.crschnick.pdxu.io.parser.TextFormatParser#projected}.
+     */
+    public static final record WildcardElement() implements Element {
+
+        @Override
+        public Node tryMatch(Node root, Node n) {
+            var array = n.getArrayNode();
+            if (array.size() > 0) {
+                return array.getNodeAt(0);
+            }
+            return null;
+        }
+
+        @Override
+        public String getKey(Node root, Node n) {
+            var array = n.getArrayNode();
+            if (array.size() > 0) {
+                return array.getKeyAt(0);
+            }
+            return null;
+        }
+
+        @Override
+        public Stream<Node> matchAll(Node root, Node n) {
+            if (!n.isArray()) {
+                return Stream.empty();
+            }
+
+            var array = n.getArrayNode();
+            return IntStream.range(0, array.size()).mapToObj(array::getNodeAt);
+        }
+
+        @Override
+        public boolean isMultiMatch() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "*";
+        }
+    }
+
+    /**
+     * Matches an array node and all arrays nested in it at any depth, in depth-first order.
+     * When evaluated directly, the node itself is returned.
+     * Values are not matched, so a recursive element is usually followed by a name or a wildcard element.
+     */
+    public static final record RecursiveElement() implements Element {
+
+        @Override
+        public Node tryMatch(Node root, Node n) {
+            return n.isArray() ? n : null;
+        }
+
+        @Override
+        public Stream<Node> matchAll(Node root, Node n) {
+            if (!n.isArray()) {
+                return Stream.empty();
+            }
+
+            return Stream.concat(Stream.of(n), nestedArrays(n.getArrayNode()).flatMap(a -> matchAll(root, a)));
+        }
+
+        private static Stream<Node> nestedArrays(ArrayNode array) {
+            // Skip values with the cursor, so that no nodes are created for them
+            var cursor = array.cursor();
+            var spliterator = new Spliterators.AbstractSpliterator<Node>(array.size(), Spliterator.ORDERED) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Node> action) {
+                    while (cursor.next()) {
+                        if (cursor.isArray()) {
+                            action.accept(cursor.getNode());
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+            return StreamSupport.stream(spliterator, false);
+        }
+
+        @Override
+        public boolean isMultiMatch() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "**";
+        }
+    }
+
+    /**
+     * Keeps the current node if it satisfies the predicate.
+     * In contrast to a {@link SelectorElement}, the predicate is applied to the node itself and not to its children.
+     */
+    public static final record PredicateElement(Predicate<Node> predicate) implements Element {
+
+        @Override
+        public Node tryMatch(Node root, Node n) {
+            return predicate.test(n) ? n : null;
+        }
+
+        @Override
+        public Stream<Node> matchAll(Node root, Node n) {
+            return predicate.test(n) ? Stream.of(n) : Stream.empty();
+        }
+
+        @Override
+        public String toString() {
+            return "[?(...)]";
+        }
+    }
+
     public static final record SupplierElement(Supplier<String> keySupplier) implements Element {
 
         @Override
@@ -110,10 +277,15 @@ public final class NodePointer {
 
         @Override
         public Node tryMatch(Node root, Node n) {
-            var res = n.getNodeArray().stream()
-                    .filter(selector)
-                    .findAny();
-            return res.orElse(null);
+            // Only create the nodes up to the first match
+            var cursor = n.getArrayNode().cursor();
+            while (cursor.next()) {
+                var node = cursor.getNode();
+                if (selector.test(node)) {
+                    return node;
+                }
+            }
+            return null;
         }
 
         @Override
@@ -146,6 +318,11 @@ public final class NodePointer {
             return this;
         }
 
+        public Builder wildcard() {
+            path.add(new WildcardElement());
+            return this;
+        }
+
         public Builder supplier(Supplier<String> keySupplier) {
             path.add(new SupplierElement(keySupplier));
             return this;
@@ -161,6 +338,16 @@ public final class NodePointer {
             return this;
         }
 
+        public Builder recursive() {
+            path.add(new RecursiveElement());
+            return this;
+        }
+
+        public Builder filter(Predicate<Node> predicate) {
+            path.add(new PredicateElement(predicate));
+            return this;
+        }
+
         public Builder pointerEvaluation(NodePointer pointer) {
             return pointerEvaluation(pointer, n -> {
                 if (!n.isValue()) {
@@ -195,15 +382,55 @@ public final class NodePointer {
     }
 
     private final List<Element> path;
+    private final Element[] elements;
+    private final int staticLength;
+    private final boolean memoized;
+    private volatile Memo memo;
 
     public NodePointer(List<Element> path) {
+        this(path, false);
+    }
+
+    private NodePointer(List<Element> path, boolean memoized) {
         this.path = path;
+        this.elements = path.toArray(Element[]::new);
+        this.staticLength = getStaticLength(elements);
+        this.memoized = memoized;
 
         if (path.size() == 0) {
             throw new IllegalArgumentException();
         }
     }
 
+    /**
+     * @return the length of the path prefix whose result only depends on the root node
+     */
+    private static int getStaticLength(Element[] elements) {
+        int length = 0;
+        while (length < elements.length && (elements[length] instanceof NameElement ||
+                elements[length] instanceof IndexElement || elements[length] instanceof WildcardElement)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * The result of the static path prefix for the last root node.
+     * Both nodes are only weakly referenced, so that a cached pointer does not keep a whole savegame in memory.
+     */
+    private record Memo(WeakReference<Node> root, WeakReference<Node> result) {
+    }
+
+    /**
+     * Returns a pointer with the same path that caches the node found by its name, index and wildcard prefix for the last evaluated root.
+     * Repeated evaluations on the same root, e.g. of pointers used in {@link Builder#pointerEvaluation(NodePointer)},
+     * then only evaluate the remaining dynamic elements.
+     * The cache assumes that the nodes below the root are not modified while the pointer is used for it.
+     */
+    public NodePointer memoized() {
+        return memoized ? this : new NodePointer(path, true);
+    }
+
     public String toString() {
         return "/" + path.stream().map(Element::toString).collect(Collectors.joining("/"));
     }
@@ -221,9 +448,39 @@ public final class NodePointer {
     }
 
     public Node get(Node root) {
-        Node current = root;
-        for (Element value : path) {
-            var found = value.tryMatch(root, current);
+        if (memoized && staticLength > 0) {
+            var prefix = getMemoizedPrefix(root);
+            return prefix != null ? evaluate(root, prefix, staticLength) : null;
+        }
+
+        return evaluate(root, root, 0);
+    }
+
+    private Node getMemoizedPrefix(Node root) {
+        var m = memo;
+        if (m != null && m.root().get() == root) {
+            if (m.result() == null) {
+                return null;
+            }
+
+            var cached = m.result().get();
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        var found = evaluate(root, root, 0, staticLength);
+        memo = new Memo(new WeakReference<>(root), found != null ? new WeakReference<>(found) : null);
+        return found;
+    }
+
+    private Node evaluate(Node root, Node current, int begin) {
+        return evaluate(root, current, begin, elements.length);
+    }
+
+    private Node evaluate(Node root, Node current, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            var found = elements[i].tryMatch(root, current);
             if (found == null) {
                 return null;
             } else {
@@ -237,6 +494,45 @@ public final class NodePointer {
         return Optional.ofNullable(get(root));
     }
 
+    /**
+     * Lazily evaluates this pointer as a query that returns every node matching the whole path.
+     * Name elements match all entries with that key, wildcard elements all entries of an array
+     * and recursive elements all nested arrays. Nodes are only visited once the stream is consumed,
+     * so short-circuiting operations like {@link Stream#findFirst()} stop the evaluation early.
+     */
+    public Stream<Node> stream(Node root) {
+        return matchAll(root, Stream.of(root), 0, elements.length);
+    }
+
+    /**
+     * Like {@link #stream(Node)}, but evaluates the remaining path for the matches of the first
+     * multi-match element in parallel. These matches are collected eagerly before the stream is returned.
+     * The final matches are returned in the same order as by {@link #stream(Node)}.
+     * The nodes are only read, but selectors and functions of the path are called from multiple threads.
+     */
+    public Stream<Node> parallelStream(Node root) {
+        int split = 0;
+        while (split < elements.length && !elements[split].isMultiMatch()) {
+            split++;
+        }
+
+        // The path can match at most one node
+        if (split == elements.length) {
+            return stream(root);
+        }
+
+        var candidates = matchAll(root, Stream.of(root), 0, split + 1).toList();
+        return matchAll(root, candidates.parallelStream(), split + 1, elements.length);
+    }
+
+    private Stream<Node> matchAll(Node root, Stream<Node> current, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            var element = elements[i];
+            current = current.flatMap(n -> element.matchAll(root, n));
+        }
+        return current;
+    }
+
     public List<Element> getPath() {
         return path;
     }
@@ -0,0 +1,202 @@
+package com.crschnick.pdxu.io.node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A trigram index over the raw bytes of all literals of a node context.
+ * The literals are grouped into blocks and the index maps every trigram to the blocks that contain it.
+ * Trigrams are case folded for ASCII letters, so that the index can be used for case-insensitive searches as well.
+ * Candidate blocks of a search are always verified with the matcher, so the index only has to produce a superset of the matches.
+ * <p>
+ * The index is built once per context with {@link NodeContext#getSearchIndex()} and is only worth it for large contexts
+ * that are searched repeatedly, e.g. in the editor.
+ */
+public final class ScalarSearchIndex {
+
+    private static final int BLOCK_SHIFT = 9;
+    private static final int BUCKET_BITS = 18;
+
+    private final NodeContext context;
+    private final int[] bucketStarts;
+    private final int[] blocks;
+
+    private ScalarSearchIndex(NodeContext context, int[] bucketStarts, int[] blocks) {
+        this.context = context;
+        this.bucketStarts = bucketStarts;
+        this.blocks = blocks;
+    }
+
+    static ScalarSearchIndex create(NodeContext context) {
+        int bucketCount = 1 << BUCKET_BITS;
+        var counts = new int[bucketCount + 1];
+        var lastBlocks = new int[bucketCount];
+        Arrays.fill(lastBlocks, -1);
+
+        // The first pass counts the blocks per bucket, the second one fills them in
+        forEachTrigram(context, (bucket, block) -> {
+            if (lastBlocks[bucket] != block) {
+                lastBlocks[bucket] = block;
+                counts[bucket + 1]++;
+            }
+        });
+
+        for (int i = 0; i < bucketCount; i++) {
+            counts[i + 1] += counts[i];
+        }
+        var bucketStarts = counts.clone();
+        var blocks = new int[counts[bucketCount]];
+        Arrays.fill(lastBlocks, -1);
+        forEachTrigram(context, (bucket, block) -> {
+            if (lastBlocks[bucket] != block) {
+                lastBlocks[bucket] = block;
+                blocks[counts[bucket]++] = block;
+            }
+        });
+        return new ScalarSearchIndex(context, bucketStarts, blocks);
+    }
+
+    private interface TrigramConsumer {
+        void accept(int bucket, int block);
+    }
+
+    private static void forEachTrigram(NodeContext context, TrigramConsumer consumer) {
+        var data = context.getData();
+        var begins = context.getLiteralsBegin();
+        for (int l = 0; l < context.getLiteralsCount(); l++) {
+            int block = l >>> BLOCK_SHIFT;
+            int begin = begins[l];
+            int end = begin + context.getLiteralLength(l);
+            for (int i = begin; i + 2 < end; i++) {
+                consumer.accept(getBucket(fold(data[i]), fold(data[i + 1]), fold(data[i + 2])), block);
+            }
+        }
+    }
+
+    static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static int getBucket(byte b0, byte b1, byte b2) {
+        int trigram = (b0 & 0xFF) << 16 | (b1 & 0xFF) << 8 | (b2 & 0xFF);
+        return (trigram * 0x9E3779B1) >>> (32 - BUCKET_BITS);
+    }
+
+    /**
+     * Finds all literals of the context that are matched by the given matcher.
+     *
+     * @return the sorted literal indices
+     */
+    public int[] findMatches(NodeMatcher matcher) {
+        var candidates = findCandidateBlocks(matcher.getFoldedBytes(context.getCharset()));
+        var found = new int[16];
+        int count = 0;
+        int blockCount = candidates != null ? candidates.length : getBlockCount();
+        for (int c = 0; c < blockCount; c++) {
+            int block = candidates != null ? candidates[c] : c;
+            int begin = block << BLOCK_SHIFT;
+            int end = Math.min(begin + (1 << BLOCK_SHIFT), context.getLiteralsCount());
+            for (int l = begin; l < end; l++) {
+                if (matcher.matchesScalar(context, l)) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = l;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private int getBlockCount() {
+        return (context.getLiteralsCount() + (1 << BLOCK_SHIFT) - 1) >>> BLOCK_SHIFT;
+    }
+
+    /**
+     * @return the sorted blocks that contain all trigrams of the folded pattern or null if all blocks have to be searched
+     */
+    private int[] findCandidateBlocks(byte[] folded) {
+        if (folded == null || folded.length < 3) {
+            return null;
+        }
+
+        int[] result = null;
+        int resultLength = 0;
+        for (int i = 0; i + 2 < folded.length; i++) {
+            int bucket = getBucket(folded[i], folded[i + 1], folded[i + 2]);
+            int begin = bucketStarts[bucket];
+            int end = bucketStarts[bucket + 1];
+            if (result == null) {
+                result = Arrays.copyOfRange(blocks, begin, end);
+                resultLength = result.length;
+                continue;
+            }
+
+            // Intersect the sorted block lists
+            int kept = 0;
+            int j = begin;
+            for (int k = 0; k < resultLength && j < end; k++) {
+                while (j < end && blocks[j] < result[k]) {
+                    j++;
+                }
+                if (j < end && blocks[j] == result[k]) {
+                    result[kept++] = result[k];
+                }
+            }
+            resultLength = kept;
+        }
+        return Arrays.copyOf(result, resultLength);
+    }
+
+    /**
+     * Maps a position in the data of the context to the literal that contains it.
+     *
+     * @return the literal index or -1 if the position lies outside any literal
+     */
+    public int getLiteralAt(int dataOffset) {
+        // The literal begins are sorted, as literals are stored in the order of the input
+        int i = Arrays.binarySearch(context.getLiteralsBegin(), 0, context.getLiteralsCount(), dataOffset);
+        int literal = i >= 0 ? i : -i - 2;
+        if (literal < 0 || dataOffset >= context.getLiteralsBegin()[literal] + context.getLiteralLength(literal)) {
+            return -1;
+        }
+        return literal;
+    }
+
+    /**
+     * Determines the path of the node that contains the given literal, either as a key or as a value.
+     * Only nodes that were created from this context are searched.
+     *
+     * @return a pointer that consists of index elements or null if the literal could not be found below the root
+     */
+    public NodePointer getPath(ArrayNode root, int literal) {
+        var path = new ArrayList<NodePointer.Element>();
+        Node current = root;
+        while (current instanceof SimpleArrayNode array && array.getContext() == context) {
+            int index = array.getEntryContaining(literal);
+            if (index == -1) {
+                return null;
+            }
+
+            path.add(new NodePointer.IndexElement(index));
+            if (array.isLiteralAt(index, literal)) {
+                return new NodePointer(path);
+            }
+            current = array.getNodeAt(index);
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether any of the sorted literals lies in the given range.
+     */
+    static boolean containsAny(int[] literals, int first, int last) {
+        int i = Arrays.binarySearch(literals, first);
+        if (i >= 0) {
+            return true;
+        }
+
+        i = -i - 1;
+        return i < literals.length && literals[i] <= last;
+    }
+}
@@ -1,53 +1,97 @@
 package com.crschnick.pdxu.io.node;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
-import java.util.stream.Collectors;
 
+/**
+ * An array node that stores its entries in columns.
+ * A non-negative value scalar refers to a literal of the context,
+ * a negative value scalar {@code v} refers to index {@code -v - 1} of the node table,
+ * which contains all entries that are not scalars.
+ * Value nodes for scalars are only created when they are accessed and are then kept,
+ * so that changes made to them are visible through this node.
+ * They are created with a compare and set, so that concurrent readers always get the same value node.
+ * Splices share all columns with the original node and only have a different offset.
+ */
 public final class SimpleArrayNode extends ArrayNode {
 
+    private static final int KEY_INDEX_THRESHOLD = 32;
+    private static final VarHandle VALUE_NODES;
+    private static final VarHandle VALUE_NODE = MethodHandles.arrayElementVarHandle(ValueNode[].class);
+
+    static {
+        try {
+            VALUE_NODES = MethodHandles.lookup().findVarHandle(SimpleArrayNode.class, "valueNodes", ValueNode[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final NodeContext context;
     private final int[] keyScalars;
     private final int[] valueScalars;
-    private final List<Node> values;
+    private final Node[] nodes;
+    private final int offset;
+    private final int size;
+    private ValueNode[] valueNodes;
+    private KeyIndex keyIndex;
+
+    SimpleArrayNode(NodeContext context, int[] keyScalars, int[] valueScalars, Node[] nodes, int offset, int size) {
+        this(context, keyScalars, valueScalars, nodes, null, offset, size);
+    }
 
-    SimpleArrayNode(NodeContext context, int[] keyScalars, int[] valueScalars, List<Node> values) {
+    private SimpleArrayNode(NodeContext context, int[] keyScalars, int[] valueScalars, Node[] nodes, ValueNode[] valueNodes, int offset, int size) {
         this.context = Objects.requireNonNull(context);
         this.keyScalars = keyScalars;
-        this.valueScalars = valueScalars;
-        this.values = Objects.requireNonNull(values);
+        this.valueScalars = Objects.requireNonNull(valueScalars);
+        this.nodes = Objects.requireNonNull(nodes);
+        this.valueNodes = valueNodes;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    static SimpleArrayNode ofNodes(NodeContext context, int[] keyScalars, List<Node> values) {
+        var nodes = values.toArray(new Node[0]);
+        var vs = new int[nodes.length];
+        for (int i = 0; i < vs.length; i++) {
+            vs[i] = -(i + 1);
+        }
+        return new SimpleArrayNode(context, keyScalars, vs, nodes, 0, nodes.length);
     }
 
     @Override
     public String toString() {
-        if (values.size() == 0) {
+        if (size == 0) {
             return "SimpleArrayNode(0)";
         }
 
-        if (values.size() <= 10) {
+        if (size <= 10) {
             StringBuilder sb = new StringBuilder("SimpleArrayNode(");
-            evaluateAllValueNodes();
-            for (int i = 0; i < values.size(); i++) {
+            for (int i = 0; i < size; i++) {
                 if (hasKeyAtIndex(i)) {
-                    sb.append(context.evaluate(keyScalars[i]));
+                    sb.append(context.evaluate(keyScalars[offset + i]));
                     sb.append("=");
                 }
-                sb.append(values.get(i).toString());
+                var n = getExistingNodeAt(i);
+                sb.append(n != null ? n.toString() : context.evaluate(valueScalars[offset + i]));
                 sb.append(", ");
             }
             sb.delete(sb.length() - 2, sb.length());
             sb.append(")");
             return sb.toString();
         } else {
-            return "SimpleArrayNode(" + values.size() + ")";
+            return "SimpleArrayNode(" + size + ")";
         }
     }
 
     @Override
     public int size() {
-        return values.size();
+        return size;
     }
 
     @Override
@@ -55,53 +99,115 @@ public final class SimpleArrayNode extends ArrayNode {
         return isKeyAt(index, key.getBytes(context.getCharset()));
     }
 
+    @Override
+    public boolean isKeyAt(NodeKey key, int index) {
+        return isKeyAt(index, key.getBytes(context.getCharset()));
+    }
+
     public ArrayNode splice(int begin, int length) {
-        int[] ks = keyScalars != null ? new int[length] : null;
-        if (keyScalars != null) {
-            System.arraycopy(keyScalars, begin, ks, 0, length);
-        }
+        // Value nodes have to be shared to keep changes made to them visible in both nodes
+        return new SimpleArrayNode(context, keyScalars, valueScalars, nodes, getValueNodes(), offset + begin, length);
+    }
+
+    @Override
+    public NodeCursor cursor() {
+        return new Cursor();
+    }
 
-        int[] vs = valueScalars != null ? new int[length] : null;
-        if (valueScalars != null) {
-            System.arraycopy(valueScalars, begin, vs, 0, length);
+    /**
+     * @return the node at the given index or {@code null} if it is a scalar without a value node
+     */
+    private Node getExistingNodeAt(int i) {
+        int vs = valueScalars[offset + i];
+        if (vs < 0) {
+            return nodes[-vs - 1];
         }
 
-        return new SimpleArrayNode(context, ks, vs, values.subList(begin, begin + length));
+        var vn = (ValueNode[]) VALUE_NODES.getAcquire(this);
+        return vn != null ? (ValueNode) VALUE_NODE.getAcquire(vn, offset + i) : null;
     }
 
-    private void evaluateNodeAt(int i) {
-        if (values.get(i) == null) {
-            values.set(i, new ValueNode(context, valueScalars[i]));
+    private ValueNode[] getValueNodes() {
+        var vn = (ValueNode[]) VALUE_NODES.getAcquire(this);
+        if (vn != null) {
+            return vn;
         }
+
+        var created = new ValueNode[offset + size];
+        var existing = (ValueNode[]) VALUE_NODES.compareAndExchangeRelease(this, null, created);
+        return existing != null ? existing : created;
     }
 
-    private void evaluateAllValueNodes() {
-        for (int i = 0; i < values.size(); i++) {
-            evaluateNodeAt(i);
+    @Override
+    public Node getNodeAt(int index) {
+        Objects.checkIndex(index, size);
+        return getNodeAtIndex(index);
+    }
+
+    private Node getNodeAtIndex(int i) {
+        int vs = valueScalars[offset + i];
+        if (vs < 0) {
+            return nodes[-vs - 1];
         }
+
+        // Initialize value node if we haven't done that already
+        var vn = getValueNodes();
+        var n = (ValueNode) VALUE_NODE.getAcquire(vn, offset + i);
+        if (n == null) {
+            var created = new ValueNode(context, vs);
+            n = (ValueNode) VALUE_NODE.compareAndExchangeRelease(vn, offset + i, null, created);
+            if (n == null) {
+                n = created;
+            }
+        }
+        return n;
     }
 
     @Override
     public List<Node> getNodeArray() {
-        evaluateAllValueNodes();
-        return Collections.unmodifiableList(values);
+        return new NodeList();
     }
 
     @Override
     public boolean matches(NodeMatcher matcher) {
-        for (int i = 0; i < values.size(); i++) {
+        return matches(matcher, 0, size, false);
+    }
+
+    @Override
+    boolean matchesWithParallelChildren(NodeMatcher matcher) {
+        return matches(matcher, 0, size, true);
+    }
+
+    @Override
+    boolean matchesWithParallelChildren(NodeMatcher matcher, int from, int to) {
+        Objects.checkFromToIndex(from, to, size);
+        return matches(matcher, from, to, true);
+    }
+
+    private boolean matches(NodeMatcher matcher, int from, int to, boolean parallelChildren) {
+        if (from == to) {
+            return false;
+        }
+
+        // All literals of these entries lie between the first literal of the first entry and the last literal of the last entry
+        if (matcher.usesSearchIndex(context) && !matcher.mayMatchLiterals(context, getEntryFirstLiteral(from), getEntryLastLiteral(to - 1))) {
+            return false;
+        }
+
+        for (int i = from; i < to; i++) {
             if (hasKeyAtIndex(i)) {
-                if (matcher.matchesScalar(context, keyScalars[i])) {
+                if (matcher.matchesScalar(context, keyScalars[offset + i])) {
                     return true;
                 }
             }
 
-            if (values.get(i) == null) {
-                if (matcher.matchesScalar(context, valueScalars[i])) {
+            var n = getExistingNodeAt(i);
+            if (n == null) {
+                if (matcher.matchesScalar(context, valueScalars[offset + i])) {
                     return true;
                 }
             } else {
-                if (values.get(i).matches(matcher)) {
+                if (parallelChildren ? n.matchesParallel(matcher) : n.matches(matcher)) {
                     return true;
                 }
             }
@@ -109,22 +215,92 @@ public final class SimpleArrayNode extends ArrayNode {
         return false;
     }
 
+    NodeContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return the index of the first literal of this node in its context or -1 if it is not known
+     */
+    int getFirstLiteral() {
+        return size > 0 ? getEntryFirstLiteral(0) : -1;
+    }
+
+    /**
+     * @return the index of the last literal of this node in its context or -1 if it is not known
+     */
+    int getLastLiteral() {
+        return size > 0 ? getEntryLastLiteral(size - 1) : -1;
+    }
+
+    private int getEntryLastLiteral(int index) {
+        int vs = valueScalars[offset + index];
+        if (vs >= 0) {
+            return vs;
+        }
+        return nodes[-vs - 1] instanceof SimpleArrayNode a && a.context == context ? a.getLastLiteral() : -1;
+    }
+
+    private int getEntryFirstLiteral(int index) {
+        if (hasKeyAtIndex(index)) {
+            return keyScalars[offset + index];
+        }
+
+        int vs = valueScalars[offset + index];
+        if (vs >= 0) {
+            return vs;
+        }
+        return nodes[-vs - 1] instanceof SimpleArrayNode a && a.context == context ? a.getFirstLiteral() : -1;
+    }
+
+    /**
+     * @return the index of the last entry that starts at or before the given literal or -1 if there is none
+     */
+    int getEntryContaining(int literal) {
+        int found = -1;
+        for (int i = 0; i < size; i++) {
+            int first = getEntryFirstLiteral(i);
+            if (first == -1) {
+                continue;
+            }
+            if (first > literal) {
+                break;
+            }
+            found = i;
+        }
+        return found;
+    }
+
+    /**
+     * @return whether the key or the scalar value of the entry is the given literal
+     */
+    boolean isLiteralAt(int index, int literal) {
+        return (hasKeyAtIndex(index) && keyScalars[offset + index] == literal) || valueScalars[offset + index] == literal;
+    }
+
     @Override
     public Descriptor describe() {
-        evaluateAllValueNodes();
-
-        if (values.size() == 0) {
+        if (size == 0) {
             // Empty array type
             return new Descriptor(null, KeyType.NONE);
         }
 
-        boolean hasArrays = values.stream().anyMatch(Node::isArray);
+        boolean hasArrays = false;
+        for (int i = 0; i < size; i++) {
+            var n = getExistingNodeAt(i);
+            if (n != null && n.isArray()) {
+                hasArrays = true;
+                break;
+            }
+        }
+
         ValueType type = null;
         if (!hasArrays) {
-            type = values.get(0).describe().getValueType();
-            for (int i = 1; i < values.size(); i++) {
-                var iT = values.get(i).describe().getValueType();
-                if (!iT.equals(type)) {
+            // Scalars that have no value node yet are classified without creating one
+            type = getValueTypeAt(0);
+            for (int i = 1; i < size; i++) {
+                var iT = getValueTypeAt(i);
+                if (iT != type) {
                     type = null;
                     break;
                 }
@@ -132,7 +308,7 @@ public final class SimpleArrayNode extends ArrayNode {
         }
 
         int keyCount = 0;
-        for (int i = 0; i < values.size(); i++) {
+        for (int i = 0; i < size; i++) {
             if (hasKeyAtIndex(i)) {
                 keyCount++;
             }
@@ -141,12 +317,17 @@ public final class SimpleArrayNode extends ArrayNode {
         if (keyCount == 0) {
             return new Descriptor(type, KeyType.NONE);
         }
-        if (keyCount == values.size()) {
+        if (keyCount == size) {
             return new Descriptor(type, KeyType.ALL);
         }
         return new Descriptor(type, KeyType.MIXED);
     }
 
+    private ValueType getValueTypeAt(int index) {
+        var node = getExistingNodeAt(index);
+        return node != null ? node.describe().getValueType() : context.getValueType(valueScalars[offset + index]);
+    }
+
     public void forEach(BiConsumer<String, Node> c, boolean includeNullKeys) {
         forEach((k, v) -> {
             c.accept(k, v);
@@ -155,17 +336,18 @@ public final class SimpleArrayNode extends ArrayNode {
     }
 
     protected void writeInternal(NodeWriter writer) throws IOException {
-        for (int i = 0; i < values.size(); i++) {
+        for (int i = 0; i < size; i++) {
             writer.indent();
             if (hasKeyAtIndex(i)) {
-                writer.write(context, keyScalars[i]);
+                writer.write(context, keyScalars[offset + i]);
                 writer.write("=");
             }
 
-            if (values.get(i) == null) {
-                writer.write(context, valueScalars[i]);
+            var n = getExistingNodeAt(i);
+            if (n == null) {
+                writer.write(context, valueScalars[offset + i]);
             } else {
-                values.get(i).write(writer);
+                n.write(writer);
             }
             writer.newLine();
         }
@@ -173,10 +355,8 @@ public final class SimpleArrayNode extends ArrayNode {
 
     @Override
     public boolean forEach(BiPredicate<String, Node> c, boolean includeNullKeys) {
-        evaluateAllValueNodes();
-
         String key;
-        for (int i = 0; i < values.size(); i++) {
+        for (int i = 0; i < size; i++) {
             if (!hasKeyAtIndex(i)) {
                 if (!includeNullKeys) {
                     continue;
@@ -184,10 +364,10 @@ public final class SimpleArrayNode extends ArrayNode {
                     key = null;
                 }
             } else {
-                key = context.evaluate(keyScalars[i]);
+                key = context.evaluate(keyScalars[offset + i]);
             }
 
-            if (!c.test(key, values.get(i))) {
+            if (!c.test(key, getNodeAtIndex(i))) {
                 return false;
             }
         }
@@ -196,12 +376,13 @@ public final class SimpleArrayNode extends ArrayNode {
 
     @Override
     protected void writeFlatInternal(NodeWriter writer) throws IOException {
-        for (int i = 0; i < values.size(); i++) {
+        for (int i = 0; i < size; i++) {
             writer.space();
-            if (values.get(i) == null) {
-                writer.write(context, valueScalars[i]);
+            var n = getExistingNodeAt(i);
+            if (n == null) {
+                writer.write(context, valueScalars[offset + i]);
             } else {
-                values.get(i).write(writer);
+                n.write(writer);
             }
         }
     }
@@ -209,8 +390,9 @@ public final class SimpleArrayNode extends ArrayNode {
     @Override
     protected boolean isFlat() {
         if (keyScalars == null) {
-            for (var v : values) {
-                if (v != null && !v.isValue()) {
+            for (int i = 0; i < size; i++) {
+                var n = getExistingNodeAt(i);
+                if (n != null && !n.isValue()) {
                     return false;
                 }
             }
@@ -225,7 +407,7 @@ public final class SimpleArrayNode extends ArrayNode {
             return null;
         }
 
-        return context.evaluate(keyScalars[index]);
+        return context.evaluate(keyScalars[offset + index]);
     }
 
     private boolean hasKeyAtIndex(int index) {
@@ -233,7 +415,7 @@ public final class SimpleArrayNode extends ArrayNode {
             return false;
         }
 
-        return keyScalars[index] != -1;
+        return keyScalars[offset + index] != -1;
     }
 
     private boolean isKeyAt(int index, byte[] b) {
@@ -241,13 +423,13 @@ public final class SimpleArrayNode extends ArrayNode {
             return false;
         }
 
-        int keyScalarIndex = keyScalars[index];
-        if (context.getLiteralsLength()[keyScalarIndex] != b.length) {
+        int keyScalarIndex = keyScalars[offset + index];
+        if (context.getLiteralLength(keyScalarIndex) != b.length) {
             return false;
         }
 
         int start = context.getLiteralsBegin()[keyScalarIndex];
-        for (int i = 0; i < context.getLiteralsLength()[keyScalarIndex]; i++) {
+        for (int i = 0; i < b.length; i++) {
             if (context.getData()[start + i] != b[i]) {
                 return false;
             }
@@ -255,6 +437,46 @@ public final class SimpleArrayNode extends ArrayNode {
         return true;
     }
 
+    private KeyIndex getKeyIndex() {
+        if (keyScalars == null || size < KEY_INDEX_THRESHOLD) {
+            return null;
+        }
+
+        // The index only holds final fields, so it is safe to share it without synchronization
+        var index = keyIndex;
+        if (index == null) {
+            index = KeyIndex.create(context, keyScalars, offset, size);
+            keyIndex = index;
+        }
+        return index;
+    }
+
+    private int getFirstIndexForKey(byte[] b, int hash) {
+        var symbols = context.getKeySymbols();
+        int symbol = symbols != null ? symbols.lookup(context, b, hash) : -1;
+        // Keys that do not occur anywhere in the context can't be contained in this node
+        if (symbols != null && symbol == -1) {
+            return -1;
+        }
+
+        var index = getKeyIndex();
+        if (index != null) {
+            return index.getFirst(b, hash);
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (symbols != null ? isSymbolAt(i, symbols, symbol) : isKeyAt(i, b)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isSymbolAt(int index, KeySymbolTable symbols, int symbol) {
+        int keyScalarIndex = keyScalars[offset + index];
+        return keyScalarIndex != -1 && symbols.getSymbol(keyScalarIndex) == symbol;
+    }
+
     private Node getNodeForKeyInternal(String key) {
         // Check if this node has no keys
         if (keyScalars == null) {
@@ -262,15 +484,26 @@ public final class SimpleArrayNode extends ArrayNode {
         }
 
         var b = key.getBytes(context.getCharset());
-        for (int i = 0; i < values.size(); i++) {
-            if (isKeyAt(i, b)) {
-                // Initialize value node if we haven't done that already
-                evaluateNodeAt(i);
-                return values.get(i);
-            }
+        return getNodeForKeyInternal(b, KeyIndex.hash(b, 0, b.length));
+    }
+
+    private Node getNodeForKeyInternal(NodeKey key) {
+        // Check if this node has no keys
+        if (keyScalars == null) {
+            return null;
         }
 
-        return null;
+        var charset = context.getCharset();
+        return getNodeForKeyInternal(key.getBytes(charset), key.getHash(charset));
+    }
+
+    private Node getNodeForKeyInternal(byte[] b, int hash) {
+        int i = getFirstIndexForKey(b, hash);
+        if (i == -1) {
+            return null;
+        }
+
+        return getNodeAtIndex(i);
     }
 
     @Override
@@ -278,10 +511,31 @@ public final class SimpleArrayNode extends ArrayNode {
         return Optional.ofNullable(getNodeForKeyInternal(key));
     }
 
+    @Override
+    public Optional<Node> getNodeForKeyIfExistent(NodeKey key) {
+        return Optional.ofNullable(getNodeForKeyInternal(key));
+    }
+
     @Override
     public Node copy() {
-        return new SimpleArrayNode(context, keyScalars, valueScalars, values.stream().map(node -> node != null ? node.copy() : null).collect(
-                Collectors.toCollection(ArrayList::new)));
+        var nodesCopy = new Node[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] != null) {
+                nodesCopy[i] = nodes[i].copy();
+            }
+        }
+
+        ValueNode[] valueNodesCopy = null;
+        if (valueNodes != null) {
+            valueNodesCopy = new ValueNode[valueNodes.length];
+            for (int i = offset; i < offset + size; i++) {
+                if (valueNodes[i] != null) {
+                    valueNodesCopy[i] = (ValueNode) valueNodes[i].copy();
+                }
+            }
+        }
+
+        return new SimpleArrayNode(context, keyScalars, valueScalars, nodesCopy, valueNodesCopy, offset, size);
     }
 
     @Override
@@ -289,6 +543,11 @@ public final class SimpleArrayNode extends ArrayNode {
         return getNodeForKeyInternal(key) != null;
     }
 
+    @Override
+    public boolean hasKey(NodeKey key) {
+        return getNodeForKeyInternal(key) != null;
+    }
+
     @Override
     public Node getNodeForKey(String key) {
         var n = getNodeForKeyInternal(key);
@@ -299,16 +558,157 @@ public final class SimpleArrayNode extends ArrayNode {
         throw new IllegalArgumentException("Invalid key " + key);
     }
 
+    @Override
+    public Node getNodeForKey(NodeKey key) {
+        var n = getNodeForKeyInternal(key);
+        if (n != null) {
+            return n;
+        }
+
+        throw new IllegalArgumentException("Invalid key " + key);
+    }
+
     @Override
     public List<Node> getNodesForKey(String key) {
         var b = key.getBytes(context.getCharset());
+        return getNodesForKey(b, KeyIndex.hash(b, 0, b.length));
+    }
+
+    @Override
+    public List<Node> getNodesForKey(NodeKey key) {
+        var charset = context.getCharset();
+        return getNodesForKey(key.getBytes(charset), key.getHash(charset));
+    }
+
+    private List<Node> getNodesForKey(byte[] b, int hash) {
         List<Node> found = new ArrayList<>();
-        for (int i = 0; i < values.size(); i++) {
-            if (isKeyAt(i, b)) {
-                evaluateNodeAt(i);
-                found.add(values.get(i));
+        if (keyScalars == null) {
+            return found;
+        }
+
+        var symbols = context.getKeySymbols();
+        int symbol = symbols != null ? symbols.lookup(context, b, hash) : -1;
+        if (symbols != null && symbol == -1) {
+            return found;
+        }
+
+        var index = getKeyIndex();
+        if (index != null) {
+            for (int i = index.getFirst(b, hash); i != -1; i = index.getNext(i)) {
+                found.add(getNodeAtIndex(i));
+            }
+            return found;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (symbols != null ? isSymbolAt(i, symbols, symbol) : isKeyAt(i, b)) {
+                found.add(getNodeAtIndex(i));
             }
         }
         return found;
     }
+
+    private final class Cursor extends NodeCursor {
+
+        private int index = -1;
+
+        @Override
+        public boolean next() {
+            if (index < size) {
+                index++;
+            }
+            return index < size;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public boolean hasKey() {
+            return hasKeyAtIndex(index);
+        }
+
+        @Override
+        public String getKey() {
+            return getKeyAt(index);
+        }
+
+        @Override
+        public byte[] getKeyData() {
+            return context.getData();
+        }
+
+        @Override
+        public Charset getKeyCharset() {
+            return context.getCharset();
+        }
+
+        @Override
+        public int getKeyBegin() {
+            return hasKeyAtIndex(index) ? context.getLiteralsBegin()[keyScalars[offset + index]] : -1;
+        }
+
+        @Override
+        public int getKeyLength() {
+            return hasKeyAtIndex(index) ? context.getLiteralLength(keyScalars[offset + index]) : 0;
+        }
+
+        @Override
+        public boolean keyEquals(byte[] data, int begin, int length) {
+            if (!hasKeyAtIndex(index)) {
+                return false;
+            }
+
+            int keyScalarIndex = keyScalars[offset + index];
+            int start = context.getLiteralsBegin()[keyScalarIndex];
+            return Arrays.equals(context.getData(), start, start + context.getLiteralLength(keyScalarIndex), data, begin, begin + length);
+        }
+
+        @Override
+        public boolean keyEquals(NodeKey key) {
+            return isKeyAt(index, key.getBytes(context.getCharset()));
+        }
+
+        @Override
+        public boolean isValue() {
+            var n = getExistingNodeAt(index);
+            return n == null || n.isValue();
+        }
+
+        @Override
+        public boolean isArray() {
+            var n = getExistingNodeAt(index);
+            return n != null && n.isArray();
+        }
+
+        @Override
+        public long getLong() {
+            var n = getExistingNodeAt(index);
+            return n != null ? n.getLong() : ValueNode.getLong(context, valueScalars[offset + index]);
+        }
+
+        @Override
+        public Node getNode() {
+            return getNodeAtIndex(index);
+        }
+    }
+
+    /**
+     * An unmodifiable view of the entries that only creates value nodes for the entries that are accessed.
+     */
+    private final class NodeList extends AbstractList<Node> implements RandomAccess {
+
+        @Override
+        public Node get(int index) {
+            Objects.checkIndex(index, size);
+            return getNodeAtIndex(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -1,30 +1,85 @@
 package com.crschnick.pdxu.io.node;
 
-import java.util.regex.Pattern;
+import java.nio.charset.StandardCharsets;
 
 public class StringValues {
 
     private static final byte DOUBLE_QUOTE_CHAR = 34;
+    private static final byte BACKSLASH_CHAR = 92;
 
-    private static final Pattern UNESCAPE_PATTERN = Pattern.compile("\\\\([\"\\\\])");
+    // Shared cache for short ASCII literals, as keys and common values are repeated very often
+    private static final int CACHE_SIZE = 4096;
+    private static final int MAX_CACHED_LENGTH = 32;
+    private static final String[] CACHE = new String[CACHE_SIZE];
 
     public static String unescapeScalarValue(NodeContext context, int index) {
+        var data = context.getData();
         var b = context.getLiteralsBegin()[index];
-        var l = context.getLiteralsLength()[index];
-        var s = new String(context.getData(), b, l, context.getCharset());
-        if (l < 2) {
-            return s;
+        var l = context.getLiteralLength(index);
+
+        int hash = 1;
+        boolean ascii = true;
+        boolean escaped = false;
+        for (int i = b; i < b + l; i++) {
+            byte c = data[i];
+            if (c < 0) {
+                ascii = false;
+            } else if (c == BACKSLASH_CHAR) {
+                escaped = true;
+            }
+            hash = 31 * hash + c;
+        }
+
+        boolean quoted = l >= 2 && data[b] == DOUBLE_QUOTE_CHAR && data[b + l - 1] == DOUBLE_QUOTE_CHAR;
+        if (quoted && escaped) {
+            return unescape(context, b, l);
         }
 
-        boolean quoted = context.getData()[b] == DOUBLE_QUOTE_CHAR &&
-                context.getData()[b + l - 1] == DOUBLE_QUOTE_CHAR;
-        if (!quoted) {
-            return s;
+        if (!ascii || l > MAX_CACHED_LENGTH) {
+            return new String(data, b, l, context.getCharset());
         }
 
-        var matcher = UNESCAPE_PATTERN.matcher(s);
-        matcher.region(1, s.length() - 1);
-        return matcher.replaceAll(r -> "$1");
+        // ASCII bytes decode to the same chars in all supported charsets
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        var cached = CACHE[slot];
+        if (cached != null && equalsAscii(cached, data, b, l)) {
+            return cached;
+        }
+
+        var s = new String(data, b, l, StandardCharsets.ISO_8859_1);
+        CACHE[slot] = s;
+        return s;
+    }
+
+    private static boolean equalsAscii(String s, byte[] data, int begin, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != data[begin + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces escaped quotes and backslashes with the escaped character.
+     * The escape characters are ASCII, so this can be done on the encoded bytes.
+     */
+    private static String unescape(NodeContext context, int begin, int length) {
+        var data = context.getData();
+        var unescaped = new byte[length];
+        int count = 0;
+        for (int i = begin; i < begin + length; i++) {
+            if (data[i] == BACKSLASH_CHAR && i + 1 < begin + length &&
+                    (data[i + 1] == DOUBLE_QUOTE_CHAR || data[i + 1] == BACKSLASH_CHAR)) {
+                i++;
+            }
+            unescaped[count++] = data[i];
+        }
+        return new String(unescaped, 0, count, context.getCharset());
     }
 
     public static String escapeStringContent(String val) {
@@ -26,7 +26,7 @@ public final class TaggedNode extends Node {
         }
 
         var begin = ctx.getLiteralsBegin()[index];
-        var length = ctx.getLiteralsLength()[index];
+        var length = ctx.getLiteralLength(index);
 
         // Make lookup as fast as possible
         if (possible == COLORS) {
@@ -69,6 +69,8 @@ public final class TaggedNode extends Node {
     }
 
     public void set(TaggedNode other) {
+        // The tag literal of the old context no longer reflects this node
+        values.forEach(v -> v.getContext().markModified());
         this.type = other.getType();
         this.values = Collections.unmodifiableList(other.getValues());
     }
@@ -3,13 +3,19 @@ package com.crschnick.pdxu.io.node;
 import java.io.IOException;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Pattern;
 
 public final class ValueNode extends Node {
 
     private static final byte DOUBLE_QUOTE_CHAR = 34;
-    private static final Pattern LONG = Pattern.compile("[+-]?[0-9]+");
-    private static final Pattern DOUBLE = Pattern.compile("[+-]?([0-9]+)[.,]([0-9]+)");
+
+    // Limits of the byte level number parsing, longer values are handled by the JDK parsers
+    private static final int MAX_FAST_INT_DIGITS = 9;
+    private static final int MAX_FAST_LONG_DIGITS = 18;
+    private static final int MAX_FAST_DOUBLE_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
 
     private NodeContext context;
     private int scalarIndex;
@@ -30,18 +36,30 @@ public final class ValueNode extends Node {
     }
 
     public void set(ValueNode newValue) {
+        // The literals of the old context no longer reflect the nodes
+        this.context.markModified();
         this.context = newValue.context;
         this.scalarIndex = newValue.scalarIndex;
     }
 
+    NodeContext getContext() {
+        return context;
+    }
+
     public boolean isQuoted() {
-        if (context.getData().length < 2) {
+        return isQuoted(context, scalarIndex);
+    }
+
+    private static boolean isQuoted(NodeContext context, int scalarIndex) {
+        // A single quote character is not a quoted empty string
+        int length = context.getLiteralLength(scalarIndex);
+        if (length < 2) {
             return false;
         }
 
         var b = context.getLiteralsBegin()[scalarIndex];
         return context.getData()[b] == DOUBLE_QUOTE_CHAR &&
-                context.getData()[b + context.getLiteralsLength()[scalarIndex] - 1] == DOUBLE_QUOTE_CHAR;
+                context.getData()[b + length - 1] == DOUBLE_QUOTE_CHAR;
     }
 
     @Override
@@ -56,22 +74,7 @@ public final class ValueNode extends Node {
 
     @Override
     public Descriptor describe() {
-        ValueType t;
-        if (isQuoted()) {
-            t = ValueType.TEXT;
-        } else {
-            var s = evaluateContent();
-            if (s.equals("yes") || s.equals("no")) {
-                t = ValueType.BOOLEAN;
-            } else if (DOUBLE.matcher(s).matches()) {
-                t = ValueType.FLOATING_POINT;
-            } else if (LONG.matcher(s).matches()) {
-                t = ValueType.INTEGER;
-            } else {
-                t = ValueType.UNQUOTED_STRING;
-            }
-        }
-        return new Descriptor(t, KeyType.NONE);
+        return new Descriptor(context.getValueType(scalarIndex), KeyType.NONE);
     }
 
     @Override
@@ -85,7 +88,11 @@ public final class ValueNode extends Node {
     }
 
     private String evaluateContent() {
-        boolean quoted = isQuoted();
+        return evaluateContent(context, scalarIndex);
+    }
+
+    private static String evaluateContent(NodeContext context, int scalarIndex) {
+        boolean quoted = isQuoted(context, scalarIndex);
         var s = context.evaluate(scalarIndex);
         if (quoted) {
             return s.substring(1, s.length() - 1);
@@ -101,20 +108,126 @@ public final class ValueNode extends Node {
 
     @Override
     public int getInteger() {
+        long fast = parseLongContent(context, scalarIndex, MAX_FAST_INT_DIGITS);
+        if (fast != Long.MIN_VALUE) {
+            return (int) fast;
+        }
+
         return Integer.parseInt(evaluateContent());
     }
 
     @Override
     public long getLong() {
-        return Long.parseLong(evaluateContent());
+        return getLong(context, scalarIndex);
+    }
+
+    /**
+     * Parses a scalar like {@link #getLong()} without requiring a value node.
+     */
+    static long getLong(NodeContext context, int scalarIndex) {
+        long fast = parseLongContent(context, scalarIndex, MAX_FAST_LONG_DIGITS);
+        if (fast != Long.MIN_VALUE) {
+            return fast;
+        }
+
+        return Long.parseLong(evaluateContent(context, scalarIndex));
     }
 
     @Override
     public double getDouble() {
+        double fast = parseDoubleContent(context, scalarIndex);
+        if (!Double.isNaN(fast)) {
+            return fast;
+        }
+
         // Replaces decimal commas
         return Double.parseDouble(evaluateContent().replaceAll(",", ""));
     }
 
+    private static int getContentBegin(NodeContext context, int scalarIndex) {
+        return context.getLiteralsBegin()[scalarIndex] + (isQuoted(context, scalarIndex) ? 1 : 0);
+    }
+
+    private static int getContentEnd(NodeContext context, int scalarIndex) {
+        return context.getLiteralsBegin()[scalarIndex] + context.getLiteralLength(scalarIndex) - (isQuoted(context, scalarIndex) ? 1 : 0);
+    }
+
+    /**
+     * Parses a plain integer with at most the given amount of digits directly from the data.
+     *
+     * @return the parsed value or {@link Long#MIN_VALUE} if the content has to be parsed by the JDK
+     */
+    private static long parseLongContent(NodeContext context, int scalarIndex, int maxDigits) {
+        var data = context.getData();
+        int i = getContentBegin(context, scalarIndex);
+        int end = getContentEnd(context, scalarIndex);
+        boolean negative = false;
+        if (i < end && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+
+        int digits = end - i;
+        if (digits <= 0 || digits > maxDigits) {
+            return Long.MIN_VALUE;
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int d = data[i] - '0';
+            if (d < 0 || d > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal number directly from the data, ignoring commas like the JDK path does.
+     * Only numbers whose digits and scale are exactly representable as doubles are handled,
+     * so that a single division yields the correctly rounded result.
+     *
+     * @return the parsed value or {@link Double#NaN} if the content has to be parsed by the JDK
+     */
+    private static double parseDoubleContent(NodeContext context, int scalarIndex) {
+        var data = context.getData();
+        int i = getContentBegin(context, scalarIndex);
+        int end = getContentEnd(context, scalarIndex);
+        boolean negative = false;
+        if (i < end && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b >= '0' && b <= '9') {
+                if (++digits > MAX_FAST_DOUBLE_DIGITS) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (scale != -1) {
+                    scale++;
+                }
+            } else if (b == '.' && scale == -1) {
+                scale = 0;
+            } else if (b != ',') {
+                return Double.NaN;
+            }
+        }
+
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
     @Override
     public boolean isValue() {
         return true;
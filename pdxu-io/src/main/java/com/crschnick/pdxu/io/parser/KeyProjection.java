@@ -0,0 +1,135 @@
+package com.crschnick.pdxu.io.parser;
+
+import com.crschnick.pdxu.io.node.NodeContext;
+import com.crschnick.pdxu.io.node.NodePointer;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A trie of the array keys that lie on a set of node pointer paths.
+ * Used by the parser to decide which array entries have to be created.
+ */
+final class KeyProjection {
+
+    private final List<byte[]> names = new ArrayList<>();
+    private final List<KeyProjection> children = new ArrayList<>();
+    private KeyProjection wildcard;
+    private boolean complete;
+
+    static KeyProjection create(Collection<NodePointer> pointers, Charset charset) {
+        var root = new KeyProjection();
+        for (var pointer : pointers) {
+            root.add(pointer.getPath(), 0, charset);
+        }
+        root.resolveWildcards();
+        return root;
+    }
+
+    private void add(List<NodePointer.Element> path, int index, Charset charset) {
+        if (complete) {
+            return;
+        }
+
+        // Everything below the end of a path is required
+        if (index == path.size()) {
+            complete = true;
+            return;
+        }
+
+        var element = path.get(index);
+        if (element instanceof NodePointer.NameElement n) {
+            getOrCreateChild(n.key().getBytes(charset)).add(path, index + 1, charset);
+        } else if (element instanceof NodePointer.WildcardElement || element instanceof NodePointer.IndexElement) {
+            // Positional access requires all entries to be present
+            if (wildcard == null) {
+                wildcard = new KeyProjection();
+            }
+            wildcard.add(path, index + 1, charset);
+        } else {
+            // The key of dynamic elements is only known after parsing
+            complete = true;
+        }
+    }
+
+    private KeyProjection getOrCreateChild(byte[] name) {
+        for (int i = 0; i < names.size(); i++) {
+            if (Arrays.equals(names.get(i), name)) {
+                return children.get(i);
+            }
+        }
+
+        var child = new KeyProjection();
+        names.add(name);
+        children.add(child);
+        return child;
+    }
+
+    private void merge(KeyProjection other) {
+        if (complete) {
+            return;
+        }
+
+        if (other.complete) {
+            complete = true;
+            return;
+        }
+
+        for (int i = 0; i < other.names.size(); i++) {
+            getOrCreateChild(other.names.get(i)).merge(other.children.get(i));
+        }
+
+        if (other.wildcard != null) {
+            if (wildcard == null) {
+                wildcard = new KeyProjection();
+            }
+            wildcard.merge(other.wildcard);
+        }
+    }
+
+    private void resolveWildcards() {
+        if (complete) {
+            return;
+        }
+
+        // Named entries also have to contain everything that is required for any entry
+        if (wildcard != null) {
+            for (var child : children) {
+                child.merge(wildcard);
+            }
+            wildcard.resolveWildcards();
+        }
+
+        for (var child : children) {
+            child.resolveWildcards();
+        }
+    }
+
+    /**
+     * @return the projection for the value of the key at the given literal index or {@code null} if it is not required
+     */
+    KeyProjection getChild(NodeContext context, int keyIndex) {
+        int begin = context.getLiteralsBegin()[keyIndex];
+        int length = context.getLiteralLength(keyIndex);
+        for (int i = 0; i < names.size(); i++) {
+            if (Arrays.equals(names.get(i), 0, names.get(i).length, context.getData(), begin, begin + length)) {
+                return children.get(i);
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * @return the projection for entries without a key or {@code null} if they are not required
+     */
+    KeyProjection getWildcard() {
+        return wildcard;
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+}
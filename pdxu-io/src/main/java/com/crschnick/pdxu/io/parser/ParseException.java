@@ -60,6 +60,16 @@ public class ParseException extends Exception {
     }
 
     public static ParseException createFromOffset(String fileName, String s, int offset, byte[] data) {
+        return createFromOffset(fileName, s, offset, data, 0, 0);
+    }
+
+    /**
+     * Creates an exception for an offset in a part of the input, e.g. the current window of a chunked input.
+     *
+     * @param dataOffset the offset of the data in the input
+     * @param dataLines  the number of lines in the input before the data
+     */
+    public static ParseException createFromOffset(String fileName, String s, int offset, byte[] data, long dataOffset, int dataLines) {
         // Clamp range
         offset = Math.max(0, Math.min(offset, data.length - 1));
 
@@ -67,7 +77,8 @@ public class ParseException extends Exception {
         var end = getDataEnd(offset, data);
         var length = Math.max(end - start + 1, 0);
         var snippet = new String(data, start, length);
-        var msg = "Parser failed for " + fileName + " at line " + getLineNumber(offset, data) + " / offset " + offset + ": " + s + "\n\n" + snippet;
+        var msg = "Parser failed for " + fileName + " at line " + (dataLines + getLineNumber(offset, data)) +
+                " / offset " + (dataOffset + offset) + ": " + s + "\n\n" + snippet;
         return new ParseException(msg);
     }
 
@@ -76,6 +87,22 @@ public class ParseException extends Exception {
         return createFromOffset(fileName, s, offset, ctx.getData());
     }
 
+    /**
+     * Creates an exception for a context whose data does not contain the whole input, e.g. because it was read in chunks.
+     * The line can't be determined in that case, so only the literal is reported.
+     */
+    public static ParseException createFromLiteral(String fileName, String s, int lIndex, NodeContext ctx) {
+        if (ctx.getLiteralsCount() == 0) {
+            return new ParseException("Parser failed for " + fileName + ": " + s);
+        }
+
+        var literal = ctx.evaluateRaw(Math.max(0, Math.min(ctx.getLiteralsCount() - 1, lIndex)));
+        if (literal.length() > 100) {
+            literal = literal.substring(0, 100) + "...";
+        }
+        return new ParseException("Parser failed for " + fileName + " near " + literal + ": " + s);
+    }
+
     public ParseException(String message) {
         super(message);
     }
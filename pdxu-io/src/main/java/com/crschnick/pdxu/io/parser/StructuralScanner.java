@@ -0,0 +1,44 @@
+package com.crschnick.pdxu.io.parser;
+
+/**
+ * Finds the positions in the input that the tokenizer state machine has to look at.
+ * All other bytes are part of a scalar, a quoted string, a comment or a block and can be skipped.
+ */
+abstract class StructuralScanner {
+
+    private static final boolean VECTOR_SUPPORT = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private static final boolean[] STRUCTURAL = new boolean[256];
+
+    static {
+        for (char c : new char[]{'\n', '\r', ' ', '\t', '{', '}', '=', '"', '#', '[', ']', '\\'}) {
+            STRUCTURAL[c] = true;
+        }
+
+        // The tokenizer replaces this byte after a } with a space, so it has to be visited as well
+        STRUCTURAL[TextFormatTokenizer.EQUALS] = true;
+    }
+
+    static StructuralScanner create() {
+        if (!VECTOR_SUPPORT) {
+            return null;
+        }
+
+        return new VectorizedStructuralScanner();
+    }
+
+    static boolean isStructural(byte b) {
+        return STRUCTURAL[b & 0xFF];
+    }
+
+    /**
+     * Discards any cached state. Has to be called whenever the scanned array contents are moved.
+     */
+    abstract void reset();
+
+    /**
+     * Returns the first index in {@code [from, end)} that might be a structural byte, or {@code end} if there is none.
+     * It is fine to report more positions than necessary, but never less.
+     */
+    abstract int next(byte[] bytes, int from, int end);
+}
@@ -2,19 +2,36 @@ package com.crschnick.pdxu.io.parser;
 
 import com.crschnick.pdxu.io.node.*;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.function.Predicate;
 
 public final class TextFormatParser {
 
+    private static final int FORMAT_HEADER_LENGTH = 8;
+
+    // Larger buffers are not kept around after parsing to not waste memory
+    private static final int MAX_POOLED_TOKEN_COUNT = 1 << 25;
+
+    private static final ThreadLocal<SoftReference<TokenBuffers>> TOKEN_BUFFERS =
+            ThreadLocal.withInitial(() -> new SoftReference<>(null));
+
     public static TextFormatParser text() {
         return new TextFormatParser(StandardCharsets.UTF_8, TaggedNode.ALL, s -> true);
     }
@@ -76,27 +93,57 @@ public final class TextFormatParser {
     private final Charset charset;
     private final TaggedNode.TagType[] possibleTags;
     private final Predicate<String> keyWithoutEquals;
-
-    private int index;
-    private int slIndex;
-    private int arrayIndex;
-    private int lastKnownOffset;
-    private TextFormatTokenizer tokenizer;
-    private NodeContext context;
+    private final boolean deferTopLevelArrays;
+    private final KeyProjection projection;
+    private final boolean internKeys;
 
     public TextFormatParser(Charset charset, TaggedNode.TagType[] possibleTags, Predicate<String> keyWithoutEquals) {
+        this(charset, possibleTags, keyWithoutEquals, false, null, false);
+    }
+
+    private TextFormatParser(Charset charset, TaggedNode.TagType[] possibleTags, Predicate<String> keyWithoutEquals,
+                             boolean deferTopLevelArrays, KeyProjection projection, boolean internKeys) {
         this.charset = charset;
         this.possibleTags = possibleTags;
         this.keyWithoutEquals = keyWithoutEquals;
+        this.deferTopLevelArrays = deferTopLevelArrays;
+        this.projection = projection;
+        this.internKeys = internKeys;
+    }
+
+    /**
+     * Returns a parser with the same format settings that only creates the nodes of top level arrays
+     * once they are accessed, see {@link DeferredArrayNode}.
+     * The input is still fully tokenized, but the tokens are kept in memory until all deferred arrays are loaded.
+     * Format errors inside a deferred array are thrown as a {@link NodeFormatException} when it is loaded.
+     */
+    public TextFormatParser deferred() {
+        return new TextFormatParser(charset, possibleTags, keyWithoutEquals, true, projection, internKeys);
     }
 
-    private void reset() {
-        this.index = 0;
-        this.lastKnownOffset = 0;
-        this.slIndex = 0;
-        this.arrayIndex = 0;
-        this.tokenizer = null;
-        this.context = null;
+    /**
+     * Returns a parser with the same format settings that only creates the nodes that lie on one of the given paths.
+     * All other array entries are skipped on the token level and are not contained in the result.
+     * The subtrees at the end of each path are created completely.
+     * <p>
+     * Paths can consist of name, index and wildcard elements. Index elements are treated like wildcards,
+     * so that all entries of the array are kept and indices stay valid.
+     * Any other element is only evaluated after parsing, so everything below it is kept.
+     */
+    public TextFormatParser projected(Collection<NodePointer> pointers) {
+        return new TextFormatParser(charset, possibleTags, keyWithoutEquals, deferTopLevelArrays, KeyProjection.create(pointers, charset),
+                internKeys);
+    }
+
+    /**
+     * Returns a parser with the same format settings that assigns every distinct key a symbol in a {@link KeySymbolTable}.
+     * Key lookups can then reject missing keys with a single hash lookup and compare keys by their symbol,
+     * and every distinct key is only evaluated into one shared string.
+     * This option has no effect for deferred parsers, as deferred arrays can be loaded concurrently.
+     * Whether the table pays off depends on the input, which {@link KeySymbolTable#createMemoryReport()} can be used to check.
+     */
+    public TextFormatParser withInternedKeys() {
+        return new TextFormatParser(charset, possibleTags, keyWithoutEquals, deferTopLevelArrays, projection, true);
     }
 
     private void verifyTextFormat(byte[] input) throws ParseException {
@@ -111,41 +158,114 @@ public final class TextFormatParser {
         }
     }
 
-    public final synchronized ArrayNode parse(Path file) throws IOException, ParseException {
-        return parse(file.getFileName().toString(), Files.readAllBytes(file), 0, false);
+    public final ArrayNode parse(Path file) throws IOException, ParseException {
+        return parse(file.getFileName().toString(), file, false);
+    }
+
+    public final ArrayNode parse(String displayName, Path file, boolean strict) throws IOException, ParseException {
+        return parse(displayName, file, 0, strict);
     }
 
-    public final synchronized ArrayNode parse(String displayName, Path file, boolean strict) throws IOException, ParseException {
-        return parse(displayName, Files.readAllBytes(file), 0, strict);
+    /**
+     * Parses a file starting at the given byte offset, e.g. to skip a savegame header.
+     * The file is read in chunks, so unlike reading it into an array first,
+     * only the bytes of the scalars are kept in memory.
+     */
+    public final ArrayNode parse(String displayName, Path file, long start, boolean strict) throws IOException, ParseException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var header = ByteBuffer.allocate(FORMAT_HEADER_LENGTH);
+            channel.read(header, 0);
+            verifyTextFormat(Arrays.copyOf(header.array(), header.position()));
+
+            var size = Math.max(channel.size() - start, 0);
+            channel.position(start);
+            return parse(displayName, new TextFormatTokenizer(displayName, channel, TextFormatTokenizer.DEFAULT_CHUNK_SIZE, size, strict), size, strict);
+        } catch (ParseException ex) {
+            throw locateParseException(displayName, file, start, strict, ex);
+        }
     }
 
-    public final synchronized ArrayNode parse(String displayName, byte[] input, int start) throws ParseException {
+    /**
+     * Errors found after the tokenization can't be located in chunked input, as only the scalars are kept.
+     * As errors are rare, the file is parsed again from memory to report the exact location.
+     */
+    private ParseException locateParseException(String displayName, Path file, long start, boolean strict, ParseException ex) {
+        try {
+            if (Files.size(file) > Integer.MAX_VALUE - 8) {
+                return ex;
+            }
+
+            parse(displayName, Files.readAllBytes(file), (int) start, strict);
+        } catch (ParseException located) {
+            // Not enough memory is available to read the file in, so keep the original error
+            return located.getCause() instanceof OutOfMemoryError ? ex : located;
+        } catch (IOException | OutOfMemoryError ignored) {
+        }
+        return ex;
+    }
+
+    public final ArrayNode parse(String displayName, InputStream in, boolean strict) throws IOException, ParseException {
+        var bufferedIn = new BufferedInputStream(in);
+        bufferedIn.mark(FORMAT_HEADER_LENGTH);
+        verifyTextFormat(bufferedIn.readNBytes(FORMAT_HEADER_LENGTH));
+        bufferedIn.reset();
+
+        var channel = Channels.newChannel(bufferedIn);
+        return parse(displayName, new TextFormatTokenizer(displayName, channel, TextFormatTokenizer.DEFAULT_CHUNK_SIZE, -1, strict), -1, strict);
+    }
+
+    public final ArrayNode parse(String displayName, byte[] input, int start) throws ParseException {
         return parse(displayName, input, start, false);
     }
 
-    public final synchronized ArrayNode parse(String name, byte[] input, int start, boolean strict) throws ParseException {
+    public final ArrayNode parse(String name, byte[] input, int start, boolean strict) throws ParseException {
+        verifyTextFormat(input);
         try {
-            verifyTextFormat(input);
+            return parse(name, new TextFormatTokenizer(name, input, start, strict), input.length, strict);
+        } catch (IOException e) {
+            // Can't happen for in-memory input
+            throw new ParseException(e);
+        }
+    }
 
-            this.tokenizer = new TextFormatTokenizer(name, input, start, strict);
+    private ArrayNode parse(String name, TextFormatTokenizer tokenizer, long inputSize, boolean strict) throws IOException, ParseException {
+        // Take the buffers out of the pool, so that nested parse calls on the same thread can't use them at the same time
+        var pooled = TOKEN_BUFFERS.get().get();
+        TOKEN_BUFFERS.remove();
+        if (pooled != null) {
+            tokenizer.reuseBuffers(pooled.tokenTypes(), pooled.arraySizes(), pooled.arrayExtents());
+        }
 
+        try {
             // var now = Instant.now();
-            this.tokenizer.tokenize();
+            tokenizer.tokenize();
             // System.out.println("Tokenizer took " + ChronoUnit.MILLIS.between(now, Instant.now()) + "ms");
 
-            this.context = new NodeContext(input, charset,
+            var context = new NodeContext(tokenizer.getData(), charset,
                     tokenizer.getScalarsStart(),
                     tokenizer.getScalarsLength(),
-                    tokenizer.getScalarCount());
+                    tokenizer.getLongScalarsLength(),
+                    tokenizer.getScalarCount(),
+                    internKeys && !deferTopLevelArrays ? new KeySymbolTable(tokenizer.getScalarCount()) : null);
 
             // now = Instant.now();
-            ArrayNode r = parseArray(name, strict);
+            var session = new ParseSession(name, strict, tokenizer.getTokenTypes(), tokenizer.getArraySizes(), tokenizer.getArrayExtents(),
+                    context, !tokenizer.isInputData(), deferTopLevelArrays);
+            ArrayNode r = projection != null ? session.parseProjectedArray(projection) : session.parseArray();
             // System.out.println("Node creator took " + ChronoUnit.MILLIS.between(now, Instant.now()) + "ms");
 
+            // The token types and array sizes are not referenced by any node, unless arrays are deferred
+            if (!deferTopLevelArrays && tokenizer.getTokenTypes().length <= MAX_POOLED_TOKEN_COUNT) {
+                TOKEN_BUFFERS.set(new SoftReference<>(new TokenBuffers(tokenizer.getTokenTypes(), tokenizer.getArraySizes(), tokenizer.getArrayExtents())));
+            }
+
             return r;
         } catch (ParseException ex) {
             throw ex;
-        }  catch (Throwable t) {
+        } catch (UncheckedIOException ex) {
+            // Thrown by the tokenizer if the input channel fails
+            throw ex.getCause();
+        } catch (Throwable t) {
             // Catch also errors!
 
             // Special case for out of memory
@@ -154,163 +274,344 @@ public final class TextFormatParser {
                 long heapMaxSize = Runtime.getRuntime().maxMemory();
                 long heapFreeSize = Runtime.getRuntime().freeMemory();
                 var m = "" + (heapSize / 1_000_000) + "Mb / " + (heapMaxSize / 1_000_000) + "Mb (" + (heapFreeSize / 1_000_000) + "Mb free)";
-                throw new ParseException("Not enough free RAM available to load file " + name + " with size " + (input.length / 1_000_000) + "Mb. " + m, ooe);
+                var size = inputSize >= 0 ? " with size " + (inputSize / 1_000_000) + "Mb" : "";
+                throw new ParseException("Not enough free RAM available to load file " + name + size + ". " + m, ooe);
             }
 
             throw new ParseException(t);
-        } finally {
-            // Always reset!
-            reset();
         }
     }
 
-    private void updateLastKnownOffset() {
-        this.lastKnownOffset = context.getLiteralsBegin()[slIndex] + context.getLiteralsLength()[slIndex];
+    private record TokenBuffers(byte[] tokenTypes, int[] arraySizes, int[] arrayExtents) {
     }
 
-    private Node parseNodeIfNotScalarValue(String name, boolean strict) throws ParseException {
-        var tt = tokenizer.getTokenTypes();
-        if (tt[index] == TextFormatTokenizer.STRING_UNQUOTED) {
-            var colorType = tt[index + 1] == TextFormatTokenizer.OPEN_GROUP ?
-                    TaggedNode.getTagType(possibleTags, context, slIndex) : null;
+    /**
+     * Holds the state of a single parse call, which allows the parser itself to be used by multiple threads at once.
+     */
+    private final class ParseSession {
+
+        private final String name;
+        private final boolean strict;
+        private final byte[] tt;
+        private final int[] arraySizes;
+        private final int[] arrayExtents;
+        private final NodeContext context;
+        // The context data only contains the scalars if the input was read in chunks
+        private final boolean chunkedInput;
+        private final boolean deferArrays;
+        private int index;
+        private int slIndex;
+        private int arrayIndex;
+        private int lastKnownOffset;
+
+        private ParseSession(String name, boolean strict, byte[] tt, int[] arraySizes, int[] arrayExtents, NodeContext context,
+                             boolean chunkedInput, boolean deferArrays) {
+            this.name = name;
+            this.strict = strict;
+            this.tt = tt;
+            this.arraySizes = arraySizes;
+            this.arrayExtents = arrayExtents;
+            this.context = context;
+            this.chunkedInput = chunkedInput;
+            this.deferArrays = deferArrays;
+        }
 
-            if (colorType != null) {
-                if (tt[index + 1] != TextFormatTokenizer.OPEN_GROUP) {
-                    throw ParseException.createFromLiteralIndex(name, "Expected {", slIndex, context);
-                }
+        private ParseException createException(String message, int literal) {
+            if (chunkedInput) {
+                return ParseException.createFromLiteral(name, message, literal, context);
+            }
+            return ParseException.createFromLiteralIndex(name, message, literal, context);
+        }
 
-                // Move over color id
-                index++;
-                moveToNextScalar();
+        private ParseException createExpectedKeyException() {
+            if (chunkedInput) {
+                return ParseException.createFromLiteral(name, "Expected key", slIndex - 1, context);
+            }
+            return ParseException.createFromOffset(name, "Expected key", lastKnownOffset, context.getData());
+        }
 
-                // Move over opening {
-                index++;
+        private void updateLastKnownOffset() {
+            // The scalar arrays are not guaranteed to have any spare capacity after the last scalar
+            if (slIndex >= context.getLiteralsCount()) {
+                return;
+            }
+
+            this.lastKnownOffset = context.getLiteralsBegin()[slIndex] + context.getLiteralLength(slIndex);
+        }
+
+        private Node parseNodeIfNotScalarValue() throws ParseException {
+            if (tt[index] == TextFormatTokenizer.STRING_UNQUOTED) {
+                var colorType = tt[index + 1] == TextFormatTokenizer.OPEN_GROUP ?
+                        TaggedNode.getTagType(possibleTags, context, slIndex) : null;
 
-                List<ValueNode> components = new ArrayList<>();
-                while (tt[index] != TextFormatTokenizer.CLOSE_GROUP) {
-                    components.add(new ValueNode(context, slIndex));
+                if (colorType != null) {
+                    if (tt[index + 1] != TextFormatTokenizer.OPEN_GROUP) {
+                        throw createException("Expected {", slIndex);
+                    }
+
+                    // Move over color id
+                    index++;
                     moveToNextScalar();
+
+                    // Move over opening {
                     index++;
-                }
 
-                // Move over closing }
-                index++;
+                    List<ValueNode> components = new ArrayList<>();
+                    while (tt[index] != TextFormatTokenizer.CLOSE_GROUP) {
+                        components.add(new ValueNode(context, slIndex));
+                        moveToNextScalar();
+                        index++;
+                    }
 
-                // A color is also an array, so we have to move the array index!
-                arrayIndex++;
+                    // Move over closing }
+                    index++;
 
-                return new TaggedNode(colorType, components);
-            }
-        } else {
-            if (tt[index] == TextFormatTokenizer.EQUALS) {
-                throw ParseException.createFromLiteralIndex(name, "encountered unexpected =", slIndex - 1, context);
-            }
-            if (tt[index] == TextFormatTokenizer.CLOSE_GROUP) {
-                throw ParseException.createFromLiteralIndex(name, "encountered unexpected }", slIndex - 1, context);
-            }
-            if (tt[index] == TextFormatTokenizer.OPEN_GROUP) {
-                return parseArray(name, strict);
-            }
-        }
+                    // A color is also an array, so we have to move the array index!
+                    arrayIndex++;
 
-        return null;
-    }
+                    return new TaggedNode(colorType, components);
+                }
+            } else {
+                if (tt[index] == TextFormatTokenizer.EQUALS) {
+                    throw createException("encountered unexpected =", slIndex - 1);
+                }
+                if (tt[index] == TextFormatTokenizer.CLOSE_GROUP) {
+                    throw createException("encountered unexpected }", slIndex - 1);
+                }
+                if (tt[index] == TextFormatTokenizer.OPEN_GROUP) {
+                    return deferArrays && arraySizes[arrayIndex] > 0 ? deferArray() : parseArray();
+                }
+            }
 
-    private void moveToNextScalar() {
-        slIndex++;
-        updateLastKnownOffset();
-    }
+            return null;
+        }
 
-    private void skipOverNextNode(String name, boolean strict) throws ParseException {
-        var res = parseNodeIfNotScalarValue(name, strict);
+        private void skipValue() throws ParseException {
+            if (tt[index] == TextFormatTokenizer.STRING_UNQUOTED) {
+                if (tt[index + 1] == TextFormatTokenizer.OPEN_GROUP && TaggedNode.getTagType(possibleTags, context, slIndex) != null) {
+                    // Move over color id
+                    index++;
+                    moveToNextScalar();
+                    skipArray();
+                    return;
+                }
+            } else {
+                if (tt[index] == TextFormatTokenizer.EQUALS) {
+                    throw createException("encountered unexpected =", slIndex - 1);
+                }
+                if (tt[index] == TextFormatTokenizer.CLOSE_GROUP) {
+                    throw createException("encountered unexpected }", slIndex - 1);
+                }
+                if (tt[index] == TextFormatTokenizer.OPEN_GROUP) {
+                    skipArray();
+                    return;
+                }
+            }
 
-        // Node is a scalar, therefore move manually
-        if (res == null) {
             index++;
-            slIndex++;
+            moveToNextScalar();
         }
-    }
 
-    private ArrayNode parseArray(String name, boolean strict) throws ParseException {
-        var tt = tokenizer.getTokenTypes();
+        private Node parseProjectedValue(KeyProjection projection) throws ParseException {
+            if (!projection.isComplete() && tt[index] == TextFormatTokenizer.OPEN_GROUP) {
+                return parseProjectedArray(projection);
+            }
 
-        assert tt[index] == TextFormatTokenizer.OPEN_GROUP : "Expected {";
-        index++;
+            return parseNodeIfNotScalarValue();
+        }
 
-        var size = tokenizer.getArraySizes()[arrayIndex++];
-        var builder = new ArrayNode.Builder(context, size);
-        while (true) {
-            assert index < tt.length : "Reached EOF but found no closing group token";
+        private ArrayNode parseProjectedArray(KeyProjection projection) throws ParseException {
+            assert tt[index] == TextFormatTokenizer.OPEN_GROUP : "Expected {";
+            index++;
+            arrayIndex++;
+
+            // Usually only a few entries are kept, so don't allocate for the full size
+            var builder = new ArrayNode.Builder(context, 4, true);
+            while (true) {
+                boolean isMissingKey = tt[index] == TextFormatTokenizer.EQUALS;
+                if (!strict && isMissingKey) {
+                    // Move over =
+                    index++;
 
-            // Check for missing keys (only in non-strict mode)
-            boolean isMissingKey = tt[index] == TextFormatTokenizer.EQUALS;
-            if (!strict && isMissingKey) {
-                // Move over =
-                index++;
+                    // Discard next node if there is one!
+                    if (tt[index] != TextFormatTokenizer.CLOSE_GROUP) {
+                        skipValue();
+                    }
+                }
 
-                // Discard next node if there is one!
-                if (tt[index] != TextFormatTokenizer.CLOSE_GROUP) {
-                    skipOverNextNode(name, strict);
+                if (tt[index] == TextFormatTokenizer.CLOSE_GROUP) {
+                    index++;
+                    return builder.build();
                 }
-            }
 
-            if (tt[index] == TextFormatTokenizer.CLOSE_GROUP) {
-                assert size >= builder.getUsedSize() :
-                        "Invalid array size. Expected: <= " + size + ", got: " + builder.getUsedSize();
-                index++;
-                return builder.build();
-            }
+                boolean isKeyValue = tt[index + 1] == TextFormatTokenizer.EQUALS;
+                if (isKeyValue && tt[index] != TextFormatTokenizer.STRING_UNQUOTED && tt[index] != TextFormatTokenizer.STRING_QUOTED) {
+                    throw createExpectedKeyException();
+                }
 
-            boolean isKeyValue = tt[index + 1] == TextFormatTokenizer.EQUALS;
-            if (isKeyValue) {
-                if (tt[index] != TextFormatTokenizer.STRING_UNQUOTED &&
-                        tt[index] != TextFormatTokenizer.STRING_QUOTED) {
-                    throw ParseException.createFromOffset(name, "Expected key", lastKnownOffset, context.getData());
+                boolean isKeyValueWithoutEquals = !isKeyValue && tt[index] == TextFormatTokenizer.STRING_UNQUOTED &&
+                        tt[index + 1] == TextFormatTokenizer.OPEN_GROUP && keyWithoutEquals.test(context.evaluate(slIndex));
+                if (isKeyValue || isKeyValueWithoutEquals) {
+                    int keyIndex = slIndex;
+                    var valueProjection = projection.getChild(context, keyIndex);
+                    moveToNextScalar();
+                    index += isKeyValue ? 2 : 1;
+
+                    if (valueProjection == null) {
+                        skipValue();
+                        continue;
+                    }
+
+                    Node result = parseProjectedValue(valueProjection);
+                    if (result == null) {
+                        builder.putKeyAndScalarValue(keyIndex, slIndex);
+                        index++;
+                        moveToNextScalar();
+                    } else {
+                        builder.putKeyAndNodeValue(keyIndex, result);
+                    }
+
+                    continue;
                 }
 
-                int keyIndex = slIndex;
-                moveToNextScalar();
-                index += 2;
+                // Unnamed array element
+                var valueProjection = projection.getWildcard();
+                if (valueProjection == null) {
+                    skipValue();
+                    continue;
+                }
 
-                Node result = parseNodeIfNotScalarValue(name, strict);
+                Node result = parseProjectedValue(valueProjection);
                 if (result == null) {
-                    // System.out.println("key: " + context.evaluate(keyIndex));
-                    // System.out.println("val: " + context.evaluate(slIndex));
-
-                    builder.putKeyAndScalarValue(keyIndex, slIndex);
+                    builder.putScalarValue(slIndex);
                     index++;
                     moveToNextScalar();
                 } else {
-                    // System.out.println("key: " + context.evaluate(keyIndex));
-                    // System.out.println("val: " + result.toString());
+                    builder.putNodeValue(result);
+                }
+            }
+        }
 
-                    builder.putKeyAndNodeValue(keyIndex, result);
+        private ArrayNode deferArray() {
+            // Continue from the current position later on, but without deferring anything
+            var deferred = new ParseSession(name, strict, tt, arraySizes, arrayExtents, context, chunkedInput, false);
+            deferred.index = index;
+            deferred.slIndex = slIndex;
+            deferred.arrayIndex = arrayIndex;
+            deferred.lastKnownOffset = lastKnownOffset;
+
+            skipArray();
+            return new DeferredArrayNode(() -> {
+                try {
+                    return deferred.parseArray();
+                } catch (ParseException e) {
+                    throw new NodeFormatException(e.getMessage(), e);
                 }
+            });
+        }
 
-                continue;
-            }
+        private void skipArray() {
+            int extent = arrayIndex * TextFormatTokenizer.EXTENT_SIZE;
+            index = arrayExtents[extent + TextFormatTokenizer.EXTENT_CLOSE_TOKEN] + 1;
+            slIndex = arrayExtents[extent + TextFormatTokenizer.EXTENT_SCALAR_END];
+            arrayIndex = arrayExtents[extent + TextFormatTokenizer.EXTENT_ARRAY_END];
+            updateLastKnownOffset();
+        }
 
-            boolean isKeyValueWithoutEquals = tt[index] == TextFormatTokenizer.STRING_UNQUOTED &&
-                    tt[index + 1] == TextFormatTokenizer.OPEN_GROUP;
-            if (isKeyValueWithoutEquals && keyWithoutEquals.test(context.evaluate(slIndex))) {
-                int keyIndex = slIndex;
-                moveToNextScalar();
-                index++;
-                Node result = parseNodeIfNotScalarValue(name, strict);
-                assert result != null : "KeyValue without equal sign must be an array node";
-                builder.putKeyAndNodeValue(keyIndex, result);
+        private void moveToNextScalar() {
+            slIndex++;
+            updateLastKnownOffset();
+        }
 
-                continue;
-            }
+        private void skipOverNextNode() throws ParseException {
+            var res = parseNodeIfNotScalarValue();
 
-            // Parse unnamed array element
-            Node result = parseNodeIfNotScalarValue(name, strict);
-            if (result == null) {
-                builder.putScalarValue(slIndex);
+            // Node is a scalar, therefore move manually
+            if (res == null) {
                 index++;
-                moveToNextScalar();
-            } else {
-                builder.putNodeValue(result);
+                slIndex++;
+            }
+        }
+
+        private ArrayNode parseArray() throws ParseException {
+            assert tt[index] == TextFormatTokenizer.OPEN_GROUP : "Expected {";
+            index++;
+
+            var size = arraySizes[arrayIndex++];
+            var builder = new ArrayNode.Builder(context, size);
+            while (true) {
+                assert index < tt.length : "Reached EOF but found no closing group token";
+
+                // Check for missing keys (only in non-strict mode)
+                boolean isMissingKey = tt[index] == TextFormatTokenizer.EQUALS;
+                if (!strict && isMissingKey) {
+                    // Move over =
+                    index++;
+
+                    // Discard next node if there is one!
+                    if (tt[index] != TextFormatTokenizer.CLOSE_GROUP) {
+                        skipOverNextNode();
+                    }
+                }
+
+                if (tt[index] == TextFormatTokenizer.CLOSE_GROUP) {
+                    assert size >= builder.getUsedSize() :
+                            "Invalid array size. Expected: <= " + size + ", got: " + builder.getUsedSize();
+                    index++;
+                    return builder.build();
+                }
+
+                boolean isKeyValue = tt[index + 1] == TextFormatTokenizer.EQUALS;
+                if (isKeyValue) {
+                    if (tt[index] != TextFormatTokenizer.STRING_UNQUOTED &&
+                            tt[index] != TextFormatTokenizer.STRING_QUOTED) {
+                        throw createExpectedKeyException();
+                    }
+
+                    int keyIndex = slIndex;
+                    moveToNextScalar();
+                    index += 2;
+
+                    Node result = parseNodeIfNotScalarValue();
+                    if (result == null) {
+                        // System.out.println("key: " + context.evaluate(keyIndex));
+                        // System.out.println("val: " + context.evaluate(slIndex));
+
+                        builder.putKeyAndScalarValue(keyIndex, slIndex);
+                        index++;
+                        moveToNextScalar();
+                    } else {
+                        // System.out.println("key: " + context.evaluate(keyIndex));
+                        // System.out.println("val: " + result.toString());
+
+                        builder.putKeyAndNodeValue(keyIndex, result);
+                    }
+
+                    continue;
+                }
+
+                boolean isKeyValueWithoutEquals = tt[index] == TextFormatTokenizer.STRING_UNQUOTED &&
+                        tt[index + 1] == TextFormatTokenizer.OPEN_GROUP;
+                if (isKeyValueWithoutEquals && keyWithoutEquals.test(context.evaluate(slIndex))) {
+                    int keyIndex = slIndex;
+                    moveToNextScalar();
+                    index++;
+                    Node result = parseNodeIfNotScalarValue();
+                    assert result != null : "KeyValue without equal sign must be an array node";
+                    builder.putKeyAndNodeValue(keyIndex, result);
+
+                    continue;
+                }
+
+                // Parse unnamed array element
+                Node result = parseNodeIfNotScalarValue();
+                if (result == null) {
+                    builder.putScalarValue(slIndex);
+                    index++;
+                    moveToNextScalar();
+                } else {
+                    builder.putNodeValue(result);
+                }
             }
         }
     }
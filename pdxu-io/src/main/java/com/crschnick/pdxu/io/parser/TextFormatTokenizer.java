@@ -1,7 +1,14 @@
 package com.crschnick.pdxu.io.parser;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Stack;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class TextFormatTokenizer {
 
@@ -11,6 +18,38 @@ public class TextFormatTokenizer {
     public static final byte CLOSE_GROUP = 4;
     public static final byte EQUALS = 5;
 
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private static final int ERROR_CONTEXT_LENGTH = 128;
+
+    // Layout of the array extents, see getArrayExtents()
+    static final int EXTENT_SIZE = 3;
+    static final int EXTENT_CLOSE_TOKEN = 0;
+    static final int EXTENT_SCALAR_END = 1;
+    static final int EXTENT_ARRAY_END = 2;
+
+    private static final int MIN_PARALLEL_SEGMENT_SIZE = 1 << 22;
+    private static final int INITIAL_STACK_SIZE = 64;
+    private static final int MIN_COUNTED_ALLOCATION_SIZE = 1 << 16;
+
+    private static final byte BYTE_CLASS_REGULAR = 0;
+    private static final byte BYTE_CLASS_WHITESPACE = 1;
+    private static final byte BYTE_CLASS_OPEN_GROUP = 2;
+    private static final byte BYTE_CLASS_CONTROL = 3;
+    private static final byte BYTE_CLASS_DELIMITER = 4;
+    private static final byte[] BYTE_CLASSES = new byte[256];
+
+    static {
+        for (char c : new char[]{'\n', '\r', ' ', '\t'}) {
+            BYTE_CLASSES[c] = BYTE_CLASS_WHITESPACE;
+        }
+        BYTE_CLASSES['{'] = BYTE_CLASS_OPEN_GROUP;
+        BYTE_CLASSES['}'] = BYTE_CLASS_CONTROL;
+        BYTE_CLASSES['='] = BYTE_CLASS_CONTROL;
+        for (char c : new char[]{'"', '#', '[', ']'}) {
+            BYTE_CLASSES[c] = BYTE_CLASS_DELIMITER;
+        }
+    }
+
     private static final byte DOUBLE_QUOTE_CHAR = 34;
     private static final byte SPACE_CHAR = 32;
     private static final byte EQUALS_CHAR = 61;
@@ -23,12 +62,30 @@ public class TextFormatTokenizer {
 
     private final String name;
     private final boolean strict;
-    private final byte[] bytes;
+    private final ReadableByteChannel channel;
+    private final StructuralScanner scanner;
+    // Only known in advance when reading from a channel
+    private final int expectedSize;
+    private byte[] bytes;
+    private int limit;
+    private boolean endOfInput;
+    // The position of the current window in the input, only used to report the location of format errors
+    private long windowOffset;
+    private int windowLines;
+    private byte[] scalarData;
+    private int scalarDataLength;
     private byte[] tokenTypes;
     private int[] scalarsStart;
     private short[] scalarsLength;
-    private final Stack<Integer> arraySizeStack;
+    // Lengths of scalars that don't fit into a short. These are referenced by negative entries in scalarsLength
+    private int[] longScalarsLength;
+    private int longScalarCounter;
+    // Indices into arraySizes of the currently open arrays, innermost last.
+    // Negative values refer to arrays opened before a segment start, see outerArraySizes
+    private int[] arrayStack;
+    private int arrayStackSize;
     private int[] arraySizes;
+    private int[] arrayExtents;
     private boolean isInQuotes;
     private boolean isInBlock;
     private boolean isInComment;
@@ -39,101 +96,548 @@ public class TextFormatTokenizer {
     private int arraySizesCounter;
     private boolean escapeChar;
 
+    // Only used when tokenizing a segment that does not start at the top level.
+    // Counts the array size changes of the arrays that were opened before the segment start,
+    // starting with the innermost one
+    private int[] outerArraySizes;
+    private int[] outerArrayExtents;
+    private int outerCloses;
+
+    // Arrays of a previous run that are not referenced anymore and can be overwritten
+    private byte[] reusableTokenTypes;
+    private int[] reusableArraySizes;
+    private int[] reusableArrayExtents;
+
     public TextFormatTokenizer(String name, byte[] bytes, int start, boolean strict) {
         this.name = name;
+        this.channel = null;
+        this.scanner = StructuralScanner.create();
+        this.expectedSize = -1;
         this.bytes = bytes;
+        this.limit = bytes.length;
+        this.endOfInput = true;
         this.strict = strict;
         this.tokenCounter = 0;
 
-        int maxTokenCount;
-        int maxNodeCount;
-        if (bytes.length < 300) {
-            // Special case for small files
-
-            // Add 2 to include open and close group tokens that are always added
-            maxTokenCount = bytes.length + 2;
+        this.arrayStack = new int[INITIAL_STACK_SIZE];
+        this.arraySizesCounter = 0;
 
-            // Add 1 in case bytes.length is 0. We then still have one empty array node
-            maxNodeCount = bytes.length + 1;
-        } else {
-            // Pessimistic assumptions, should always hold!
+        this.i = start;
+        this.nextScalarStart = start;
+    }
 
-            maxTokenCount = bytes.length / 2;
-            maxNodeCount = bytes.length / 4;
+    private TextFormatTokenizer(TextFormatTokenizer parent, int start, int end, boolean topLevel) {
+        this(parent.name, parent.bytes, start, parent.strict);
+        allocateFor(start, end);
+        if (!topLevel) {
+            this.outerArraySizes = new int[8];
+            this.outerArrayExtents = new int[8 * EXTENT_SIZE];
         }
+    }
 
-        this.tokenTypes = new byte[maxTokenCount];
-        this.scalarsStart = new int[maxNodeCount];
-        this.scalarsLength = new short[maxNodeCount];
-        this.arraySizes = new int[maxNodeCount];
+    /**
+     * Creates a tokenizer that reads its input from a channel in chunks of {@code chunkSize} bytes.
+     * The raw input is never held in memory as a whole, only the bytes of the scalars are retained.
+     * Scalar offsets therefore refer to the array returned by {@link #getData()}, not to the input.
+     *
+     * @param sizeHint the expected input size or {@code -1} if unknown, only used to presize the token arrays
+     */
+    public TextFormatTokenizer(String name, ReadableByteChannel channel, int chunkSize, long sizeHint, boolean strict) {
+        this.name = name;
+        this.channel = channel;
+        this.scanner = StructuralScanner.create();
+        // Small inputs fit into a single window, one more byte is required to detect the end of the input
+        this.bytes = new byte[sizeHint > 0 ? (int) Math.min(chunkSize, sizeHint + 1) : chunkSize];
+        this.limit = 0;
+        this.endOfInput = false;
+        this.strict = strict;
+        this.tokenCounter = 0;
 
-        this.arraySizeStack = new Stack<>();
+        this.expectedSize = (int) Math.min(sizeHint > 0 ? sizeHint : chunkSize, 1 << 30);
+        this.scalarData = new byte[expectedSize / 2 + 1];
+
+        this.arrayStack = new int[INITIAL_STACK_SIZE];
         this.arraySizesCounter = 0;
+    }
 
-        this.i = start;
-        this.nextScalarStart = start;
+    private void allocateFor(int start, int end) {
+        int length = end - start;
+        if (length < 300) {
+            // Special case for small files
+
+            // Add 2 to include open and close group tokens that are always added.
+            // Add 1 to the node count in case length is 0. We then still have one empty array node
+            allocate(length + 2, length + 1, length + 1);
+        } else if (length < MIN_COUNTED_ALLOCATION_SIZE) {
+            // Pessimistic assumptions, should always hold!
+            allocate(length / 2, length / 4, length / 4);
+        } else {
+            allocateCounted(start, end);
+        }
     }
 
-    private void checkResize() {
-        var maxTokenCount = tokenTypes.length;
-        var maxNodeCount = scalarsStart.length;
-        if (this.tokenCounter >= maxTokenCount || this.scalarCounter >= maxNodeCount) {
-            resize();
+    /**
+     * Allocates the token arrays based on a quick pass over the input that counts upper bounds
+     * for the number of tokens, scalars and arrays. For large inputs, this uses far less memory
+     * than the pessimistic assumptions. If a bound does not hold, the arrays are still resized.
+     */
+    private void allocateCounted(int start, int end) {
+        int scalars = 0;
+        int opens = 0;
+        int controlTokens = 0;
+        boolean separated = true;
+        for (int p = start; p < end; p++) {
+            byte type = BYTE_CLASSES[bytes[p] & 0xFF];
+            if (type == BYTE_CLASS_REGULAR) {
+                if (separated) {
+                    scalars++;
+                }
+                separated = false;
+                continue;
+            }
+
+            separated = true;
+            if (type == BYTE_CLASS_OPEN_GROUP) {
+                opens++;
+                controlTokens++;
+            } else if (type == BYTE_CLASS_CONTROL) {
+                controlTokens++;
+            } else if (type == BYTE_CLASS_DELIMITER) {
+                // Quotes, comments and blocks can start or finish a scalar without any whitespace
+                scalars++;
+            }
         }
+
+        // Unclosed arrays are closed at the end, plus the top level open and close group tokens
+        allocate(scalars + controlTokens + opens + 2, scalars + 1, opens + 1);
     }
 
-    private void resize() {
-        var maxTokenCount = tokenTypes.length;
-        var maxNodeCount = scalarsStart.length;
+    private void allocate(int maxTokenCount, int maxScalarCount, int maxArrayCount) {
+        this.tokenTypes = newTokenTypes(maxTokenCount);
+        this.scalarsStart = new int[maxScalarCount];
+        this.scalarsLength = new short[maxScalarCount];
+        this.arraySizes = newArraySizes(maxArrayCount);
+        this.arrayExtents = newArrayExtents(maxArrayCount * EXTENT_SIZE);
+    }
+
+    private byte[] newTokenTypes(int length) {
+        if (reusableTokenTypes != null && reusableTokenTypes.length >= length) {
+            var r = reusableTokenTypes;
+            reusableTokenTypes = null;
+            return r;
+        }
+        return new byte[length];
+    }
+
+    private int[] newArraySizes(int length) {
+        if (reusableArraySizes != null && reusableArraySizes.length >= length) {
+            var r = reusableArraySizes;
+            reusableArraySizes = null;
+            return r;
+        }
+        return new int[length];
+    }
 
-        var tokenTypes = new byte[maxTokenCount * 2];
-        System.arraycopy(this.tokenTypes, 0, tokenTypes, 0, maxTokenCount);
-        this.tokenTypes = tokenTypes;
+    private int[] newArrayExtents(int length) {
+        if (reusableArrayExtents != null && reusableArrayExtents.length >= length) {
+            var r = reusableArrayExtents;
+            reusableArrayExtents = null;
+            return r;
+        }
+        return new int[length];
+    }
 
-        var scalarsStart = new int[maxNodeCount * 2];
-        System.arraycopy(this.scalarsStart, 0, scalarsStart, 0, maxNodeCount);
-        this.scalarsStart = scalarsStart;
+    /**
+     * Lets this tokenizer use the token types, array sizes and array extents arrays of a previous tokenizer run
+     * instead of allocating new ones, if they are large enough. Their contents are overwritten.
+     * Has to be called before {@link #tokenize()}.
+     */
+    public void reuseBuffers(byte[] tokenTypes, int[] arraySizes, int[] arrayExtents) {
+        this.reusableTokenTypes = tokenTypes;
+        this.reusableArraySizes = arraySizes;
+        this.reusableArrayExtents = arrayExtents;
+    }
 
-        var scalarsLength = new short[maxNodeCount * 2];
-        System.arraycopy(this.scalarsLength, 0, scalarsLength, 0, maxNodeCount);
-        this.scalarsLength = scalarsLength;
+    private void checkResize() {
+        // A finished scalar can be directly followed by a control token
+        if (this.tokenCounter + 1 >= tokenTypes.length) {
+            tokenTypes = Arrays.copyOf(tokenTypes, tokenTypes.length * 2);
+        }
+        if (this.scalarCounter >= scalarsStart.length) {
+            scalarsStart = Arrays.copyOf(scalarsStart, scalarsStart.length * 2);
+            scalarsLength = Arrays.copyOf(scalarsLength, scalarsLength.length * 2);
+        }
+        if (this.arraySizesCounter >= arraySizes.length) {
+            arraySizes = Arrays.copyOf(arraySizes, arraySizes.length * 2);
+            arrayExtents = Arrays.copyOf(arrayExtents, arraySizes.length * EXTENT_SIZE);
+        }
+    }
 
-        var arraySizes = new int[maxNodeCount * 2];
-        System.arraycopy(this.arraySizes, 0, arraySizes, 0, maxNodeCount);
-        this.arraySizes = arraySizes;
+    private void checkResizeForClosingTokens(int count) {
+        if (tokenCounter + count >= tokenTypes.length) {
+            tokenTypes = Arrays.copyOf(tokenTypes, Math.max(tokenTypes.length * 2, tokenCounter + count + 1));
+        }
     }
 
     private void checkBom() {
-        if (bytes.length >= 3 && Arrays.equals(bytes, 0, 3, UTF_8_BOM, 0, 3)) {
+        if (limit >= 3 && Arrays.equals(bytes, 0, 3, UTF_8_BOM, 0, 3)) {
             this.nextScalarStart += 3;
             this.i += 3;
         }
     }
 
+    private ParseException createException(String message, int offset) {
+        if (channel != null && !endOfInput) {
+            // Read the bytes after the offset that are shown in the snippet
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length, limit + ERROR_CONTEXT_LENGTH));
+            try {
+                fillWindow();
+            } catch (UncheckedIOException ignored) {
+            }
+        }
+
+        // The window can contain unused capacity after the input
+        var data = channel != null ? Arrays.copyOf(bytes, limit) : bytes;
+        return ParseException.createFromOffset(name, message, offset, data, windowOffset, windowLines);
+    }
+
     private void checkUnclosedArrays() throws ParseException {
-        if (strict && arraySizeStack.size() > 1) {
-            throw ParseException.createFromOffset(name, "Missing closing } at the end of the file", i - 1, bytes);
+        if (strict && arrayStackSize > 1) {
+            throw createException("Missing closing } at the end of the file", i - 1);
         }
 
-        for (int i = 1; i < arraySizeStack.size(); i++) {
+        checkResizeForClosingTokens(arrayStackSize);
+        for (int i = arrayStackSize - 1; i >= 1; i--) {
+            setArrayExtent(arrayStack[i]);
             tokenTypes[tokenCounter] = CLOSE_GROUP;
             tokenCounter++;
         }
-        arraySizeStack.clear();
+        arrayStackSize = 0;
+    }
+
+    private void closeTopLevel() throws ParseException {
+        checkUnclosedArrays();
+        setArrayExtent(0);
+        tokenTypes[tokenCounter] = CLOSE_GROUP;
+    }
+
+    private void setArrayExtent(int array) {
+        int extent = array * EXTENT_SIZE;
+        arrayExtents[extent + EXTENT_CLOSE_TOKEN] = tokenCounter;
+        arrayExtents[extent + EXTENT_SCALAR_END] = scalarCounter;
+        arrayExtents[extent + EXTENT_ARRAY_END] = arraySizesCounter;
     }
 
     public void tokenize() throws ParseException {
+        if (channel == null) {
+            if (tokenizeParallel()) {
+                return;
+            }
+
+            allocateFor(i, limit);
+        } else {
+            // We can't know the exact input size, so start with moderate sizes and resize if needed.
+            // Arrays are much rarer than scalars, savegames contain about one array per hundred bytes
+            allocate(expectedSize / 4 + 2, expectedSize / 8 + 1, expectedSize / 64 + 1);
+        }
+
+        beginTopLevel();
+        if (channel != null) {
+            tokenizeChannel();
+        } else {
+            checkBom();
+            tokenizeRange(limit);
+
+            // Simulated new line at the end
+            tokenizeIteration();
+            i++;
+        }
+        closeTopLevel();
+    }
+
+    private void beginTopLevel() {
         tokenTypes[0] = OPEN_GROUP;
         arraySizes[0] = 0;
-        arraySizeStack.add(0);
+        pushArray(0);
         arraySizesCounter++;
         tokenCounter = 1;
+    }
+
+    private List<Integer> createSegmentBounds() {
+        int segmentCount = Math.min(ForkJoinPool.getCommonPoolParallelism(), (limit - i) / MIN_PARALLEL_SEGMENT_SIZE);
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(i);
+        for (int s = 1; s < segmentCount; s++) {
+            // Segments always start at the beginning of a line.
+            // Multi line strings, comments or blocks are very rare, so the tokenizer state at that point is most likely the default one
+            int p = (int) (i + (long) (limit - i) * s / segmentCount);
+            while (p < limit && bytes[p - 1] != '\n') {
+                p++;
+            }
+
+            if (p < limit && p > bounds.get(bounds.size() - 1)) {
+                bounds.add(p);
+            }
+        }
+        bounds.add(limit);
+        return bounds;
+    }
+
+    /**
+     * Speculatively tokenizes multiple segments of the input in parallel, assuming that each segment starts in the default state.
+     * The per segment results are then stitched together if that assumption held.
+     *
+     * @return whether the parallel tokenization succeeded. If not, the input has to be tokenized sequentially
+     */
+    private boolean tokenizeParallel() throws ParseException {
+        var bounds = createSegmentBounds();
+        int segmentCount = bounds.size() - 1;
+        if (segmentCount < 2) {
+            return false;
+        }
+
+        var segments = new TextFormatTokenizer[segmentCount];
+        boolean success = IntStream.range(0, segmentCount).parallel().allMatch(s -> {
+            var segment = new TextFormatTokenizer(this, bounds.get(s), bounds.get(s + 1), s == 0);
+            segments[s] = segment;
+            return segment.tokenizeSegment(bounds.get(s + 1));
+        });
+        if (!success) {
+            return false;
+        }
+
+        // Check whether the speculated start states were correct
+        for (int s = 0; s < segmentCount - 1; s++) {
+            var segment = segments[s];
+            if (segment.isInQuotes || segment.isInComment || segment.isInBlock || segment.nextScalarStart != bounds.get(s + 1)) {
+                return false;
+            }
+        }
+
+        return stitchSegments(segments);
+    }
+
+    private boolean tokenizeSegment(int end) {
+        try {
+            if (outerArraySizes == null) {
+                beginTopLevel();
+                checkBom();
+            } else {
+                pushArray(-1);
+            }
+
+            tokenizeRange(end);
+            if (end == limit) {
+                // Simulated new line at the end
+                tokenizeIteration();
+                i++;
+            }
+            return true;
+        } catch (ParseException | WrongSegmentStartException ex) {
+            // Format errors might be caused by a wrong speculated start state. Let the sequential tokenizer find out
+            return false;
+        }
+    }
+
+    /**
+     * Signals that a segment can't be tokenized with the speculated start state.
+     */
+    private static final class WrongSegmentStartException extends RuntimeException {
+
+        private WrongSegmentStartException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private boolean stitchLongScalars(TextFormatTokenizer segment, int scalarOffset) {
+        if (longScalarCounter + segment.longScalarCounter > -Short.MIN_VALUE) {
+            return false;
+        }
+
+        // The long scalar references of the segment have to be shifted by the long scalars of previous segments
+        for (int s = scalarOffset; s < scalarOffset + segment.scalarCounter; s++) {
+            if (scalarsLength[s] < 0) {
+                scalarsLength[s] = (short) (scalarsLength[s] - longScalarCounter);
+            }
+        }
+
+        longScalarsLength = longScalarsLength == null ? new int[segment.longScalarCounter] :
+                Arrays.copyOf(longScalarsLength, longScalarCounter + segment.longScalarCounter);
+        System.arraycopy(segment.longScalarsLength, 0, longScalarsLength, longScalarCounter, segment.longScalarCounter);
+        longScalarCounter += segment.longScalarCounter;
+        return true;
+    }
+
+    private void copyArrayExtent(int[] from, int fromArray, int toArray, int tokenOffset, int scalarOffset, int arrayOffset) {
+        int f = fromArray * EXTENT_SIZE;
+        int t = toArray * EXTENT_SIZE;
+        arrayExtents[t + EXTENT_CLOSE_TOKEN] = tokenOffset + from[f + EXTENT_CLOSE_TOKEN];
+        arrayExtents[t + EXTENT_SCALAR_END] = scalarOffset + from[f + EXTENT_SCALAR_END];
+        arrayExtents[t + EXTENT_ARRAY_END] = arrayOffset + from[f + EXTENT_ARRAY_END];
+    }
+
+    private boolean stitchSegments(TextFormatTokenizer[] segments) throws ParseException {
+        int tokenCount = Arrays.stream(segments).mapToInt(s -> s.tokenCounter).sum();
+        int scalarCount = Arrays.stream(segments).mapToInt(s -> s.scalarCounter).sum();
+        int arrayCount = Arrays.stream(segments).mapToInt(s -> s.arraySizesCounter).sum();
+
+        this.scalarsStart = new int[Math.max(scalarCount, 1)];
+        this.scalarsLength = new short[Math.max(scalarCount, 1)];
+        this.arraySizes = newArraySizes(Math.max(arrayCount, 1));
+        this.arrayExtents = newArrayExtents(Math.max(arrayCount, 1) * EXTENT_SIZE);
+
+        int tokenOffset = 0;
+        int scalarOffset = 0;
+        int arrayOffset = 0;
+        for (var segment : segments) {
+            System.arraycopy(segment.scalarsStart, 0, scalarsStart, scalarOffset, segment.scalarCounter);
+            System.arraycopy(segment.scalarsLength, 0, scalarsLength, scalarOffset, segment.scalarCounter);
+            if (segment.longScalarCounter > 0) {
+                if (!stitchLongScalars(segment, scalarOffset)) {
+                    return false;
+                }
+            }
+            System.arraycopy(segment.arraySizes, 0, arraySizes, arrayOffset, segment.arraySizesCounter);
+
+            // Extents of arrays that are not closed in the segment are overwritten once they are closed
+            for (int a = 0; a < segment.arraySizesCounter; a++) {
+                copyArrayExtent(segment.arrayExtents, a, arrayOffset + a, tokenOffset, scalarOffset, arrayOffset);
+            }
+
+            if (segment.outerArraySizes != null) {
+                // If a segment closes the top level array, we have to handle that sequentially
+                if (segment.outerCloses >= arrayStackSize) {
+                    arrayStackSize = 0;
+                    return false;
+                }
+
+                for (int d = 0; d <= segment.outerCloses; d++) {
+                    arraySizes[arrayStack[arrayStackSize - 1 - d]] += segment.outerArraySizes[d];
+                }
+                for (int d = 0; d < segment.outerCloses; d++) {
+                    copyArrayExtent(segment.outerArrayExtents, d, arrayStack[arrayStackSize - 1 - d], tokenOffset, scalarOffset, arrayOffset);
+                }
+                arrayStackSize -= segment.outerCloses;
+            }
+
+            for (int d = 0; d < segment.arrayStackSize; d++) {
+                if (segment.arrayStack[d] >= 0) {
+                    pushArray(arrayOffset + segment.arrayStack[d]);
+                }
+            }
+
+            tokenOffset += segment.tokenCounter;
+            scalarOffset += segment.scalarCounter;
+            arrayOffset += segment.arraySizesCounter;
+        }
+
+        // Add space for the unclosed arrays and the final closing token
+        this.tokenTypes = newTokenTypes(tokenCount + arrayStackSize + 1);
+        for (var segment : segments) {
+            System.arraycopy(segment.tokenTypes, 0, tokenTypes, tokenCounter, segment.tokenCounter);
+            tokenCounter += segment.tokenCounter;
+        }
+
+        this.scalarCounter = scalarCount;
+        this.arraySizesCounter = arrayCount;
+        this.i = limit + 1;
+        closeTopLevel();
+        return true;
+    }
+
+    private void tokenizeChannel() throws ParseException {
+        fillWindow();
         checkBom();
-        for (; i <= bytes.length; i++) {
+        while (true) {
+            // Always keep one byte of lookahead in the window until the input is exhausted
+            int end = endOfInput ? limit : limit - 1;
+            tokenizeRange(end);
+
+            if (endOfInput) {
+                // Simulated new line at the end
+                tokenizeIteration();
+                i++;
+                trimScalarData();
+                return;
+            }
+
+            shiftWindow();
+            fillWindow();
+        }
+    }
+
+    private void tokenizeRange(int end) throws ParseException {
+        if (scanner == null) {
+            for (; i < end; i++) {
+                tokenizeIteration();
+            }
+            return;
+        }
+
+        scanner.reset();
+        while (true) {
+            // Skip all bytes that can't change the state of the tokenizer
+            i = scanner.next(bytes, i, end);
+            if (i == end) {
+                return;
+            }
+
             tokenizeIteration();
+            i++;
+
+            // An escape char also affects the next byte in quotes, even if it is not structural
+            while (escapeChar && i < end) {
+                tokenizeIteration();
+                i++;
+            }
         }
-        checkUnclosedArrays();
-        tokenTypes[tokenCounter] = CLOSE_GROUP;
+    }
+
+    private void shiftWindow() {
+        // Keep the current unfinished scalar and the previous byte, which is required to detect @[ blocks.
+        // Some bytes before that are kept as well, so that they can be shown in the snippet of format errors
+        int keep = Math.max(0, Math.min(nextScalarStart, i - 1) - ERROR_CONTEXT_LENGTH);
+        if (keep == 0 && limit == bytes.length) {
+            // The current scalar spans the whole window
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            return;
+        }
+
+        for (int j = 0; j < keep; j++) {
+            if (bytes[j] == '\n') {
+                windowLines++;
+            }
+        }
+        windowOffset += keep;
+
+        System.arraycopy(bytes, keep, bytes, 0, limit - keep);
+        limit -= keep;
+        i -= keep;
+        nextScalarStart -= keep;
+    }
+
+    /**
+     * The scalar data is kept alive by all created nodes, so a large unused capacity is not kept around.
+     */
+    private void trimScalarData() {
+        if (scalarData.length - scalarDataLength > scalarData.length / 8) {
+            scalarData = Arrays.copyOf(scalarData, scalarDataLength);
+        }
+    }
+
+    private void fillWindow() {
+        var buffer = ByteBuffer.wrap(bytes, limit, bytes.length - limit);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    endOfInput = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        limit = buffer.position();
     }
 
     private void moveScalarStartToNext() {
@@ -225,39 +729,94 @@ public class TextFormatTokenizer {
             return;
         }
 
-        short length = (short) ((endExclusive - 1) - nextScalarStart + 1);
-
-        // Check for length overflow
-        if (length < 0) {
-            throw ParseException.createFromOffset(name,
-                                                  "Encountered scalar with length " + ((endExclusive - 1) - nextScalarStart + 1) +
-                                                          ", which is too big", nextScalarStart, bytes
-            );
-        }
-
+        int length = endExclusive - nextScalarStart;
         assert length > 0 : "Scalar must be of length at least 1";
 
+        // Scalars can also be finished by quotes, comments and blocks, which are not covered by the regular check
+        checkResize();
+
         if (bytes[nextScalarStart] == DOUBLE_QUOTE_CHAR && bytes[endExclusive - 1] == DOUBLE_QUOTE_CHAR) {
             tokenTypes[tokenCounter++] = STRING_QUOTED;
         } else {
             tokenTypes[tokenCounter++] = STRING_UNQUOTED;
         }
-        scalarsStart[scalarCounter] = nextScalarStart;
-        scalarsLength[scalarCounter] = length;
+        scalarsStart[scalarCounter] = scalarData != null ? copyScalarData(nextScalarStart, length) : nextScalarStart;
+        scalarsLength[scalarCounter] = length <= Short.MAX_VALUE ? (short) length : addLongScalarLength(length);
         scalarCounter++;
 
-        assert arraySizeStack.size() > 0 : "Encountered unexpectedly large array at index " + endExclusive;
-        arraySizes[arraySizeStack.peek()]++;
+        assert arrayStackSize > 0 : "Encountered unexpectedly large array at index " + endExclusive;
+        incrementCurrentArraySize();
 
         nextScalarStart = endExclusive;
     }
 
+    private void pushArray(int arrayIndex) {
+        if (arrayStackSize == arrayStack.length) {
+            arrayStack = Arrays.copyOf(arrayStack, arrayStack.length * 2);
+        }
+        arrayStack[arrayStackSize++] = arrayIndex;
+    }
+
+    private void incrementCurrentArraySize() {
+        int current = arrayStack[arrayStackSize - 1];
+        if (current >= 0) {
+            arraySizes[current]++;
+        } else {
+            outerArraySizes[-current - 1]++;
+        }
+    }
+
+    private int getCurrentArraySize() {
+        int current = arrayStack[arrayStackSize - 1];
+        return current >= 0 ? arraySizes[current] : outerArraySizes[-current - 1];
+    }
+
+    private void closeOuterArray() {
+        int closed = -arrayStack[arrayStackSize - 1];
+        int extent = (closed - 1) * EXTENT_SIZE;
+        outerArrayExtents[extent + EXTENT_CLOSE_TOKEN] = tokenCounter;
+        outerArrayExtents[extent + EXTENT_SCALAR_END] = scalarCounter;
+        outerArrayExtents[extent + EXTENT_ARRAY_END] = arraySizesCounter;
+
+        if (closed == outerArraySizes.length) {
+            outerArraySizes = Arrays.copyOf(outerArraySizes, outerArraySizes.length * 2);
+            outerArrayExtents = Arrays.copyOf(outerArrayExtents, outerArraySizes.length * EXTENT_SIZE);
+        }
+        arrayStack[arrayStackSize - 1] = -(closed + 1);
+        outerCloses++;
+    }
+
+    private short addLongScalarLength(int length) throws ParseException {
+        if (longScalarCounter == -Short.MIN_VALUE) {
+            throw createException("Encountered scalar with length " + length + ", but there are too many long scalars", nextScalarStart);
+        }
+
+        if (longScalarsLength == null) {
+            longScalarsLength = new int[8];
+        } else if (longScalarCounter == longScalarsLength.length) {
+            longScalarsLength = Arrays.copyOf(longScalarsLength, longScalarsLength.length * 2);
+        }
+        longScalarsLength[longScalarCounter++] = length;
+        return (short) -longScalarCounter;
+    }
+
+    private int copyScalarData(int start, int length) {
+        if (scalarDataLength + length > scalarData.length) {
+            scalarData = Arrays.copyOf(scalarData, Math.max(scalarData.length * 2, scalarDataLength + length));
+        }
+
+        int copyStart = scalarDataLength;
+        System.arraycopy(bytes, start, scalarData, copyStart, length);
+        scalarDataLength += length;
+        return copyStart;
+    }
+
     private byte getSuccessorByte() {
-        return i == bytes.length - 1 ? 0 : bytes[i + 1];
+        return i == limit - 1 ? 0 : bytes[i + 1];
     }
 
     private void setSuccessorByte(byte b) {
-        if (i < bytes.length - 1) {
+        if (i < limit - 1) {
             bytes[i + 1] = b;
         }
     }
@@ -305,9 +864,9 @@ public class TextFormatTokenizer {
         if (controlToken == CLOSE_GROUP) {
             // Special case for additional close group token on top level
             // Happens in CK2 and VIC2
-            if (arraySizeStack.size() == 1) {
+            if (arrayStackSize == 1 && outerArraySizes == null) {
                 if (strict) {
-                    throw ParseException.createFromOffset(name, "Additional closing } at the of the file", i, bytes);
+                    throw createException("Additional closing } at the of the file", i);
                 }
 
                 return;
@@ -315,25 +874,44 @@ public class TextFormatTokenizer {
 
             if (getSuccessorByte() == EQUALS) {
                 if (strict) {
-                    throw ParseException.createFromOffset(name, "Invalid key name }", i, bytes);
+                    throw createException("Invalid key name }", i);
+                }
+
+                // Segments share the input, so we can't modify it
+                if (outerArraySizes != null) {
+                    throw new WrongSegmentStartException();
                 }
 
                 setSuccessorByte(SPACE_CHAR);
                 return;
             }
 
-            arraySizeStack.pop();
+            if (arrayStack[arrayStackSize - 1] < 0) {
+                closeOuterArray();
+            } else {
+                setArrayExtent(arrayStack[--arrayStackSize]);
+            }
         } else if (controlToken == EQUALS) {
-            if (strict && arraySizes[arraySizeStack.peek()] == 0) {
-                throw ParseException.createFromOffset(name, "Encountered invalid =", i, bytes);
+            if (strict && getCurrentArraySize() == 0) {
+                throw createException("Encountered invalid =", i);
             }
 
-            if (arraySizes[arraySizeStack.peek()] > 0) {
-                arraySizes[arraySizeStack.peek()]--;
+            int current = arrayStack[arrayStackSize - 1];
+            if (getCurrentArraySize() > 0) {
+                if (current >= 0) {
+                    arraySizes[current]--;
+                } else {
+                    outerArraySizes[-current - 1]--;
+                }
+            } else if (current < 0) {
+                // We don't know the size of an outer array here
+                throw new WrongSegmentStartException();
             }
         } else if (controlToken == OPEN_GROUP) {
-            arraySizes[arraySizeStack.peek()]++;
-            arraySizeStack.add(arraySizesCounter++);
+            incrementCurrentArraySize();
+            // Reused arrays are not zeroed
+            arraySizes[arraySizesCounter] = 0;
+            pushArray(arraySizesCounter++);
         }
 
         tokenTypes[tokenCounter++] = controlToken;
@@ -349,7 +927,7 @@ public class TextFormatTokenizer {
 
     private void tokenizeIteration() throws ParseException {
         // Add extra new line at the end to simulate end of token
-        char c = i == bytes.length ? '\n' : (char) bytes[i];
+        char c = i == limit ? '\n' : (char) bytes[i];
 
         if (checkCommentCase(c)) {
             return;
@@ -376,6 +954,21 @@ public class TextFormatTokenizer {
         checkWhitespace(c);
     }
 
+    /**
+     * Returns the data that the scalar offsets refer to.
+     * This is the input array itself, unless the input was read from a channel.
+     */
+    public byte[] getData() {
+        return scalarData != null ? scalarData : bytes;
+    }
+
+    /**
+     * @return whether the scalar offsets refer to the input, which is not the case if it was read from a channel
+     */
+    public boolean isInputData() {
+        return scalarData == null;
+    }
+
     public byte[] getTokenTypes() {
         return tokenTypes;
     }
@@ -384,6 +977,16 @@ public class TextFormatTokenizer {
         return arraySizes;
     }
 
+    /**
+     * Returns the extents of all arrays, indexed like the array sizes with {@code EXTENT_SIZE} entries per array.
+     * For each array, this contains the token index of its closing group token
+     * and the scalar and array counts up to that token.
+     * This allows skipping over an array in constant time.
+     */
+    public int[] getArrayExtents() {
+        return arrayExtents;
+    }
+
     public int[] getScalarsStart() {
         return scalarsStart;
     }
@@ -392,6 +995,16 @@ public class TextFormatTokenizer {
         return scalarsLength;
     }
 
+    /**
+     * Returns the lengths of all scalars that are longer than {@link Short#MAX_VALUE}.
+     * A negative entry {@code l} in the scalar lengths refers to index {@code -l - 1} of this array.
+     *
+     * @return the long scalar lengths or {@code null} if there are none
+     */
+    public int[] getLongScalarsLength() {
+        return longScalarsLength;
+    }
+
     public int getScalarCount() {
         return scalarCounter;
     }
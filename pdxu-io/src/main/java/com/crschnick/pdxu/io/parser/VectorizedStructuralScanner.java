@@ -0,0 +1,64 @@
+package com.crschnick.pdxu.io.parser;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorizedStructuralScanner extends StructuralScanner {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private int blockStart = -1;
+    private long blockMask;
+
+    private static long classify(byte[] bytes, int offset) {
+        var v = ByteVector.fromArray(SPECIES, bytes, offset);
+
+        // All control characters, the space, " and #. Includes ! as well, which is fine
+        VectorMask<Byte> m = v.lt((byte) 0x24).andNot(v.lt((byte) 0));
+        m = m.or(v.eq((byte) '='));
+
+        // [, \ and ]
+        var bracket = v.sub((byte) '[');
+        m = m.or(bracket.lt((byte) 3).andNot(bracket.lt((byte) 0)));
+
+        m = m.or(v.eq((byte) '{'));
+        m = m.or(v.eq((byte) '}'));
+        return m.toLong();
+    }
+
+    @Override
+    void reset() {
+        blockStart = -1;
+    }
+
+    @Override
+    int next(byte[] bytes, int from, int end) {
+        int length = SPECIES.length();
+        while (from < end) {
+            if (blockStart != -1 && from >= blockStart && from < blockStart + length) {
+                long remaining = blockMask & (-1L << (from - blockStart));
+                if (remaining != 0) {
+                    return Math.min(blockStart + Long.numberOfTrailingZeros(remaining), end);
+                }
+
+                from = blockStart + length;
+                continue;
+            }
+
+            if (from + length > bytes.length) {
+                // Not enough bytes left for a full vector
+                for (; from < end; from++) {
+                    if (isStructural(bytes[from])) {
+                        return from;
+                    }
+                }
+                return end;
+            }
+
+            blockStart = from;
+            blockMask = classify(bytes, from);
+        }
+        return end;
+    }
+}
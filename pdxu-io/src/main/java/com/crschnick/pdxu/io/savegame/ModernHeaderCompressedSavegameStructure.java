@@ -2,6 +2,7 @@ package com.crschnick.pdxu.io.savegame;
 
 import com.crschnick.pdxu.io.node.ArrayNode;
 import com.crschnick.pdxu.io.node.NodeWriter;
+import com.crschnick.pdxu.io.parser.TextFormatParser;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -64,7 +65,7 @@ public class ModernHeaderCompressedSavegameStructure extends ZipSavegameStructur
     }
 
     @Override
-    public SavegameParseResult parse(byte[] input) {
+    public SavegameParseResult parse(byte[] input, TextFormatParser parser) {
         int contentStart;
         if (ModernHeader.skipsHeader(input)) {
             contentStart = indexOfCompressedGamestateStart(input);
@@ -86,6 +87,6 @@ public class ModernHeaderCompressedSavegameStructure extends ZipSavegameStructur
             contentStart = indexOfCompressedGamestateStart(input);
         }
 
-        return parseInput(input, contentStart);
+        return parseInput(input, contentStart, parser);
     }
 }
@@ -2,6 +2,7 @@ package com.crschnick.pdxu.io.savegame;
 
 import com.crschnick.pdxu.io.node.ArrayNode;
 import com.crschnick.pdxu.io.node.NodeWriter;
+import com.crschnick.pdxu.io.parser.TextFormatParser;
 import lombok.Value;
 
 import java.io.IOException;
@@ -32,33 +33,57 @@ public class ModernPlaintextSavegameStructure implements SavegameStructure {
     }
 
     @Override
-    public SavegameParseResult parse(byte[] input) {
-        int metaStart;
-        if (ModernHeader.skipsHeader(input)) {
-            metaStart = 0;
-        } else {
-            var header = ModernHeader.determineHeaderForFile(input);
-            if (header.binary()) {
-                throw new IllegalArgumentException("Binary savegames are not supported");
-            }
-            if (header.isCompressed()) {
-                throw new IllegalArgumentException("Compressed savegames are not supported");
-            }
-
-            metaStart = header.toString().length() + 1;
-        }
+    public SavegameParseResult parse(byte[] input, TextFormatParser parser) {
+        int metaStart = getMetaStart(input);
         try {
-            var node = getType().getParser().parse("gamestate", input, metaStart);
-            if (node.size() == 0) {
-                return new SavegameParseResult.Invalid("File gamestate is empty");
-            }
+            return createResult(parser.parse("gamestate", input, metaStart));
+        } catch (Exception t) {
+            return new SavegameParseResult.Error(t);
+        }
+    }
 
-            return new SavegameParseResult.Success(new SavegameContent(Map.of("gamestate", node)));
+    @Override
+    public SavegameParseResult parse(Path file, TextFormatParser parser) throws IOException {
+        byte[] start;
+        try (var in = Files.newInputStream(file)) {
+            start = in.readNBytes(ModernHeader.LENGTH);
+        }
+
+        int metaStart = getMetaStart(start);
+        try {
+            return createResult(parser.parse("gamestate", file, metaStart, false));
         } catch (Exception t) {
             return new SavegameParseResult.Error(t);
         }
     }
 
+    /**
+     * Only reads the first {@link ModernHeader#LENGTH} bytes of the input.
+     */
+    private static int getMetaStart(byte[] input) {
+        if (ModernHeader.skipsHeader(input)) {
+            return 0;
+        }
+
+        var header = ModernHeader.determineHeaderForFile(input);
+        if (header.binary()) {
+            throw new IllegalArgumentException("Binary savegames are not supported");
+        }
+        if (header.isCompressed()) {
+            throw new IllegalArgumentException("Compressed savegames are not supported");
+        }
+
+        return header.toString().length() + 1;
+    }
+
+    private static SavegameParseResult createResult(ArrayNode node) {
+        if (node.size() == 0) {
+            return new SavegameParseResult.Invalid("File gamestate is empty");
+        }
+
+        return new SavegameParseResult.Success(new SavegameContent(Map.of("gamestate", node)));
+    }
+
     @Override
     public SavegameType getType() {
         return type;
@@ -1,6 +1,7 @@
 package com.crschnick.pdxu.io.savegame;
 
 import com.crschnick.pdxu.io.node.NodeWriter;
+import com.crschnick.pdxu.io.parser.TextFormatParser;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -63,7 +64,7 @@ public class ModernSplitCompressedSavegameStructure extends ZipSavegameStructure
     }
 
     @Override
-    public SavegameParseResult parse(byte[] input) {
+    public SavegameParseResult parse(byte[] input, TextFormatParser parser) {
         int contentStart;
         if (ModernHeader.skipsHeader(input)) {
             contentStart = 0;
@@ -87,6 +88,6 @@ public class ModernSplitCompressedSavegameStructure extends ZipSavegameStructure
             }
         }
 
-        return parseInput(input, contentStart);
+        return parseInput(input, contentStart, parser);
     }
 }
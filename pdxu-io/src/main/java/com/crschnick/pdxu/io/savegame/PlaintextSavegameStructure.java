@@ -1,6 +1,8 @@
 package com.crschnick.pdxu.io.savegame;
 
+import com.crschnick.pdxu.io.node.ArrayNode;
 import com.crschnick.pdxu.io.parser.ParseException;
+import com.crschnick.pdxu.io.parser.TextFormatParser;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -31,7 +33,7 @@ public class PlaintextSavegameStructure implements SavegameStructure {
     }
 
     @Override
-    public SavegameParseResult parse(byte[] input) {
+    public SavegameParseResult parse(byte[] input, TextFormatParser parser) {
         if (input.length == 0) {
             return new SavegameParseResult.Invalid("File " + name + " is empty. Did something go wrong?");
         }
@@ -41,17 +43,47 @@ public class PlaintextSavegameStructure implements SavegameStructure {
         }
 
         try {
-            var node = type.getParser().parse(name, input, header != null ? header.length + 1 : 0);
-            if (node.size() == 0) {
-                return new SavegameParseResult.Invalid("File " + name + " is empty. Did something go wrong?");
+            return createResult(parser.parse(name, input, getContentStart()));
+        } catch (ParseException e) {
+            return new SavegameParseResult.Error(e);
+        }
+    }
+
+    @Override
+    public SavegameParseResult parse(Path file, TextFormatParser parser) throws IOException {
+        if (Files.size(file) == 0) {
+            return new SavegameParseResult.Invalid("File " + name + " is empty. Did something go wrong?");
+        }
+
+        if (header != null) {
+            byte[] start;
+            try (var in = Files.newInputStream(file)) {
+                start = in.readNBytes(header.length);
+            }
+            if (!SavegameStructure.validateHeader(header, start)) {
+                return new SavegameParseResult.Invalid("File " + name + " has an invalid header");
             }
+        }
 
-            return new SavegameParseResult.Success(new SavegameContent(Map.of(name, node)));
+        try {
+            return createResult(parser.parse(name, file, getContentStart(), false));
         } catch (ParseException e) {
             return new SavegameParseResult.Error(e);
         }
     }
 
+    private int getContentStart() {
+        return header != null ? header.length + 1 : 0;
+    }
+
+    private SavegameParseResult createResult(ArrayNode node) {
+        if (node.size() == 0) {
+            return new SavegameParseResult.Invalid("File " + name + " is empty. Did something go wrong?");
+        }
+
+        return new SavegameParseResult.Success(new SavegameContent(Map.of(name, node)));
+    }
+
     @Override
     public SavegameType getType() {
         return type;
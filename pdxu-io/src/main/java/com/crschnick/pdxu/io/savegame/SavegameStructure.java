@@ -2,9 +2,11 @@ package com.crschnick.pdxu.io.savegame;
 
 import com.crschnick.pdxu.io.node.ArrayNode;
 import com.crschnick.pdxu.io.node.NodeWriter;
+import com.crschnick.pdxu.io.parser.TextFormatParser;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Set;
@@ -100,7 +102,23 @@ public interface SavegameStructure {
         NodeWriter.write(out, getType().getParser().getCharset(), node, "\t", 0);
     }
 
-    SavegameParseResult parse(byte[] input);
+    default SavegameParseResult parse(byte[] input) {
+        return parse(input, getType().getParser());
+    }
+
+    /**
+     * Parses the input with a specific parser of the savegame type, e.g. a {@link TextFormatParser#deferred()} one
+     * if only a few top level entries are read.
+     */
+    SavegameParseResult parse(byte[] input, TextFormatParser parser);
+
+    /**
+     * Parses a savegame file. Plaintext structures read the file in chunks instead of loading it completely,
+     * all other structures fall back to parsing the file contents.
+     */
+    default SavegameParseResult parse(Path file, TextFormatParser parser) throws IOException {
+        return parse(Files.readAllBytes(file), parser);
+    }
 
     SavegameType getType();
 }
@@ -7,6 +7,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Random;
@@ -15,6 +16,12 @@ import java.util.zip.ZipInputStream;
 
 public interface SavegameType {
 
+    /**
+     * The number of bytes at the start of a savegame file that {@link #isBinary(byte[])} and {@link #determineStructure(byte[])}
+     * need. This includes the range that is searched for the gamestate of compressed savegames without a header.
+     */
+    int DETECTION_LENGTH = 1 << 18;
+
     SavegameType EU4 = new SavegameType() {
 
         @Override
@@ -385,6 +392,15 @@ public interface SavegameType {
         return null;
     }
 
+    /**
+     * Reads the start of a savegame file that is needed to determine its structure, so that large files don't have to be read completely.
+     */
+    static byte[] readDetectionBytes(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            return in.readNBytes(DETECTION_LENGTH);
+        }
+    }
+
     SavegameStructure determineStructure(byte[] input);
 
     boolean isCompressed(byte[] input);
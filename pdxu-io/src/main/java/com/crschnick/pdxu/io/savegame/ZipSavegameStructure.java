@@ -2,6 +2,8 @@ package com.crschnick.pdxu.io.savegame;
 
 import com.crschnick.pdxu.io.node.ArrayNode;
 import com.crschnick.pdxu.io.node.NodeWriter;
+import com.crschnick.pdxu.io.parser.ParseException;
+import com.crschnick.pdxu.io.parser.TextFormatParser;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -9,6 +11,9 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -38,14 +43,25 @@ public class ZipSavegameStructure implements SavegameStructure {
         this.ignored = ignoredFiles;
     }
 
-    protected SavegameParseResult parseInput(byte[] input, int offset) {
+    protected SavegameParseResult parseInput(byte[] input, int offset, TextFormatParser parser) {
+        // Parts are parsed in parallel while the next entries are still being decompressed
+        Map<String, CompletableFuture<ArrayNode>> parsedParts = new LinkedHashMap<>();
+        var rejected = new AtomicBoolean();
+        var result = parseParts(input, offset, parser, parsedParts, rejected);
+        if (!(result instanceof SavegameParseResult.Success)) {
+            rejectParts(rejected, parsedParts.values());
+        }
+        return result;
+    }
+
+    private SavegameParseResult parseParts(byte[] input, int offset, TextFormatParser parser,
+                                           Map<String, CompletableFuture<ArrayNode>> parsedParts, AtomicBoolean rejected) {
         var wildcard = parts.stream()
                 .filter(p -> p.fileName().equals("*"))
                 .findAny();
 
         try {
             try (var zipIn = new ZipInputStream(new ByteArrayInputStream(input, offset, input.length - offset))) {
-                Map<String, ArrayNode> nodes = new LinkedHashMap<>();
                 ZipEntry entry;
                 while ((entry = zipIn.getNextEntry()) != null) {
                     ZipEntry finalZipEntry = entry;
@@ -69,12 +85,34 @@ public class ZipSavegameStructure implements SavegameStructure {
                         return new SavegameParseResult.Invalid("File " + part.get().identifier() + " has an invalid header");
                     }
 
-                    var node = type.getParser().parse(part.get().identifier(), bytes, header != null ? header.length + 1 : 0);
+                    parsedParts.put(part.get().identifier(), CompletableFuture.supplyAsync(() -> {
+                        // Don't start parsing if the savegame was already rejected
+                        if (rejected.get()) {
+                            return null;
+                        }
+
+                        try {
+                            return parser.parse(part.get().identifier(), bytes, header != null ? header.length + 1 : 0);
+                        } catch (ParseException e) {
+                            throw new CompletionException(e);
+                        }
+                    }));
+                }
+
+                Map<String, ArrayNode> nodes = new LinkedHashMap<>();
+                for (var e : parsedParts.entrySet()) {
+                    ArrayNode node;
+                    try {
+                        node = e.getValue().join();
+                    } catch (CompletionException ex) {
+                        return new SavegameParseResult.Error(ex.getCause());
+                    }
+
                     if (node.size() == 0) {
-                        return new SavegameParseResult.Invalid("File " + part.get().identifier() + " is empty");
+                        return new SavegameParseResult.Invalid("File " + e.getKey() + " is empty");
                     }
 
-                    nodes.put(part.get().identifier(), node);
+                    nodes.put(e.getKey(), node);
                 }
 
                 var missingParts = parts.stream()
@@ -92,6 +130,15 @@ public class ZipSavegameStructure implements SavegameStructure {
         }
     }
 
+    /**
+     * Rejects all parts when returning early without waiting for them.
+     * Parts that have not started yet are skipped, parts that are still being parsed are discarded once they finish.
+     */
+    private static void rejectParts(AtomicBoolean rejected, Collection<CompletableFuture<ArrayNode>> futures) {
+        rejected.set(true);
+        futures.forEach(f -> f.cancel(false));
+    }
+
     @Override
     public void write(Path out, SavegameContent content) throws IOException {
         try (var fs = FileSystems.newFileSystem(out, Map.of("create", true))) {
@@ -128,8 +175,8 @@ public class ZipSavegameStructure implements SavegameStructure {
     }
 
     @Override
-    public SavegameParseResult parse(byte[] input) {
-        return parseInput(input, 0);
+    public SavegameParseResult parse(byte[] input, TextFormatParser parser) {
+        return parseInput(input, 0, parser);
     }
 
     @Override
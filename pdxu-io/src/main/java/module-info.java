@@ -4,5 +4,6 @@ module com.crschnick.pdxu.io {
     exports com.crschnick.pdxu.io.node;
 
     requires static org.graalvm.polyglot;
+    requires static jdk.incubator.vector;
     requires static lombok;
 }
\ No newline at end of file
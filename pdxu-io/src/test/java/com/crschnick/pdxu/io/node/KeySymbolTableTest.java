@@ -0,0 +1,124 @@
+package com.crschnick.pdxu.io.node;
+
+import com.crschnick.pdxu.io.parser.TextFormatParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeySymbolTableTest {
+
+    /**
+     * Creates a context whose literals are the given strings, separated by spaces.
+     */
+    private static NodeContext createContext(List<String> literals, KeySymbolTable symbols) {
+        var sb = new StringBuilder();
+        var begins = new int[literals.size()];
+        var lengths = new short[literals.size()];
+        for (int i = 0; i < literals.size(); i++) {
+            begins[i] = sb.length();
+            lengths[i] = (short) literals.get(i).length();
+            sb.append(literals.get(i)).append(" ");
+        }
+        return new NodeContext(sb.toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, begins, lengths, null, literals.size(), symbols);
+    }
+
+    private static int lookup(KeySymbolTable symbols, NodeContext context, String key) {
+        var nodeKey = NodeKey.of(key);
+        return symbols.lookup(context, nodeKey.getBytes(context.getCharset()), nodeKey.getHash(context.getCharset()));
+    }
+
+    @Test
+    public void testIntern() {
+        var symbols = new KeySymbolTable(6);
+        var context = createContext(List.of("a", "b", "a", "ab", "\"a\"", "value"), symbols);
+        assertEquals(0, symbols.intern(context, 0));
+        assertEquals(1, symbols.intern(context, 1));
+        assertEquals(0, symbols.intern(context, 2));
+        assertEquals(2, symbols.intern(context, 3));
+        // Keys are compared by their raw bytes
+        assertEquals(3, symbols.intern(context, 4));
+
+        // Interning a literal again doesn't count it twice
+        assertEquals(0, symbols.intern(context, 0));
+        assertEquals(4, symbols.getSymbolCount());
+        assertEquals(5, symbols.getKeyCount());
+
+        assertEquals(0, symbols.getSymbol(2));
+        assertEquals(-1, symbols.getSymbol(5));
+        assertEquals(2, lookup(symbols, context, "ab"));
+        assertEquals(-1, lookup(symbols, context, "value"));
+        assertEquals(-1, lookup(symbols, context, ""));
+        assertEquals("a", context.evaluate(2));
+        assertSame(context.evaluate(0), context.evaluate(2));
+    }
+
+    @Test
+    public void testGrowth() {
+        var keys = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            keys.add("key" + i);
+        }
+        keys.addAll(keys);
+        var symbols = new KeySymbolTable(keys.size());
+        var context = createContext(keys, symbols);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i % 1000, symbols.intern(context, i));
+        }
+
+        // All symbols can still be found after the table has grown multiple times
+        var found = new HashSet<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, lookup(symbols, context, "key" + i));
+            found.add(symbols.getSymbol(i + 1000));
+        }
+        assertEquals(1000, found.size());
+        assertEquals(-1, lookup(symbols, context, "key1000"));
+        assertEquals(2000, symbols.getKeyCount());
+    }
+
+    @Test
+    public void testParsedKeys() throws Exception {
+        var input = "a=1 b=2 a=3 c={ a=4 d=5 } b=6".getBytes(StandardCharsets.UTF_8);
+        var root = TextFormatParser.text().withInternedKeys().parse("test", input, 0);
+        var context = ((SimpleArrayNode) root).getContext();
+        var symbols = context.getKeySymbols();
+        assertEquals(4, symbols.getSymbolCount());
+        assertEquals(7, symbols.getKeyCount());
+
+        // Keys and values alternate in the literals
+        assertEquals(0, symbols.getSymbol(0));
+        assertEquals(-1, symbols.getSymbol(1));
+        assertEquals(-1, lookup(symbols, context, "1"));
+
+        // Equal keys share one string
+        assertSame(root.getKeyAt(0), root.getKeyAt(2));
+        assertSame(root.getKeyAt(1), root.getKeyAt(4));
+        assertSame(root.getKeyAt(0), root.getNodeAt(3).getArrayNode().getKeyAt(0));
+        assertEquals(4, root.getNodeForKey("c").getNodeForKey("a").getInteger());
+        assertFalse(root.hasKey("d"));
+        assertFalse(symbols.createMemoryReport().isEmpty());
+    }
+
+    @Test
+    public void testWindows1252Keys() throws Exception {
+        var parser = TextFormatParser.eu4().withInternedKeys();
+        var root = (SimpleArrayNode) parser.parse("test", "caf\u00e9=1 cafe=2 caf\u00e9=3".getBytes(parser.getCharset()), 0);
+        var symbols = root.getContext().getKeySymbols();
+        assertEquals(2, symbols.getSymbolCount());
+        assertEquals(0, lookup(symbols, root.getContext(), "caf\u00e9"));
+        assertEquals(1, lookup(symbols, root.getContext(), "cafe"));
+        assertEquals(1, root.getNodeForKey(NodeKey.of("caf\u00e9")).getInteger());
+    }
+
+    @Test
+    public void testDeferredParsersDontInternKeys() throws Exception {
+        var root = TextFormatParser.text().withInternedKeys().deferred().parse("test", "a={ b=1 } c=2".getBytes(StandardCharsets.UTF_8), 0);
+        assertNull(((SimpleArrayNode) root).getContext().getKeySymbols());
+        assertEquals(1, root.getNodeForKey("a").getNodeForKey("b").getInteger());
+    }
+}
@@ -0,0 +1,121 @@
+package com.crschnick.pdxu.io.node;
+
+import com.crschnick.pdxu.io.parser.TextFormatParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkedArrayNodeTest {
+
+    private static ArrayNode parse(String input) throws Exception {
+        return TextFormatParser.text().parse("test", input.getBytes(), 0);
+    }
+
+    private static List<String> keys(ArrayNode node) {
+        return IntStream.range(0, node.size()).mapToObj(node::getKeyAt).toList();
+    }
+
+    private static List<String> strings(ArrayNode node) {
+        return node.getNodeArray().stream().map(n -> n.isArray() ? "{}" : n.getString()).toList();
+    }
+
+    /**
+     * Creates a rope of three parts with three entries each.
+     */
+    private static ArrayNode threeParts() throws Exception {
+        return new LinkedArrayNode(List.of(parse("a=1 b=2 c=3"), parse("d=4 e=5 a=6"), parse("f=7 g={ 8 } h=9")));
+    }
+
+    @Test
+    public void testParts() throws Exception {
+        var node = new LinkedArrayNode(List.of(parse("a=1 b=2"), parse(""), parse("c={ 3 } a=4")));
+        assertEquals(4, node.size());
+        assertEquals(List.of("a", "b", "c", "a"), keys(node));
+        assertEquals(List.of("1", "2", "{}", "4"), strings(node));
+        assertEquals("LinkedArrayNode(4)", node.toString());
+
+        // Lookups return the first entry over all parts
+        assertEquals(1, node.getNodeForKey("a").getInteger());
+        assertEquals(2, node.getNodesForKey(NodeKey.of("a")).size());
+        assertTrue(node.isKeyAt("a", 3));
+        assertFalse(node.hasKey("missing"));
+
+        var cursor = node.cursor();
+        for (int i = 0; i < node.size(); i++) {
+            assertTrue(cursor.next());
+            assertEquals(i, cursor.getIndex());
+            assertEquals(node.getKeyAt(i), cursor.getKey());
+            assertSame(node.getNodeAt(i), cursor.getNode());
+        }
+        assertFalse(cursor.next());
+
+        var visited = new ArrayList<String>();
+        node.forEach((k, v) -> {
+            visited.add(k);
+        }, true);
+        assertEquals(keys(node), visited);
+    }
+
+    @Test
+    public void testReplaceAcrossParts() throws Exception {
+        var node = threeParts();
+        var replaced = node.replacePart(parse("x=10 y=11"), 2, 3);
+        assertEquals(List.of("a", "b", "x", "y", "a", "f", "g", "h"), keys(replaced));
+        assertEquals(6, replaced.getNodesForKey("a").get(1).getInteger());
+
+        // The replaced node is not modified
+        assertEquals(List.of("a", "b", "c", "d", "e", "a", "f", "g", "h"), keys(node));
+        assertEquals(List.of("1", "2", "3", "4", "5", "6", "7", "{}", "9"), strings(node));
+    }
+
+    @Test
+    public void testReplaceAtEnds() throws Exception {
+        var node = threeParts();
+        assertEquals(List.of("x", "a", "b"), keys(node.replacePart(parse("x=0"), 0, 0)).subList(0, 3));
+        assertEquals(List.of("h", "x"), keys(node.replacePart(parse("x=0"), 9, 0)).subList(8, 10));
+        assertEquals(List.of("g"), keys(node.replacePart(parse(""), 0, 9).replacePart(parse("g=1"), 0, 0)));
+        assertEquals(List.of("a", "b", "c"), keys(node.replacePart(parse(""), 3, 6)));
+    }
+
+    @Test
+    public void testReplaceKey() throws Exception {
+        var node = threeParts();
+        var replaced = node.replaceKey("a", new ValueNode("changed", false));
+        assertEquals("changed", replaced.getNodeForKey("a").getString());
+        assertEquals(6, replaced.getNodesForKey("a").get(1).getInteger());
+        assertEquals(keys(node), keys(replaced));
+        assertEquals(1, node.getNodeForKey("a").getInteger());
+        assertThrows(IllegalArgumentException.class, () -> node.replaceKey("missing", new ValueNode("x", false)));
+    }
+
+    @Test
+    public void testSplices() throws Exception {
+        var node = threeParts();
+        var splice = node.splice(2, 5);
+        assertEquals(List.of("c", "d", "e", "a", "f"), keys(splice));
+        for (int i = 0; i < splice.size(); i++) {
+            assertSame(node.getNodeAt(i + 2), splice.getNodeAt(i));
+        }
+        assertEquals(List.of("e"), keys(node.splice(4, 1)));
+        assertEquals(0, node.splice(9, 0).size());
+
+        // Splices can be the base of further replacements
+        assertEquals(List.of("c", "x", "f"), keys(splice.replacePart(parse("x=0"), 1, 3)));
+    }
+
+    @Test
+    public void testRepeatedAppends() throws Exception {
+        ArrayNode node = parse("k0=0");
+        for (int i = 1; i < 2000; i++) {
+            node = node.replacePart(parse("k" + i + "=" + i), node.size(), 0);
+        }
+        assertEquals(2000, node.size());
+        assertEquals(1999, node.getNodeAt(1999).getInteger());
+        assertEquals(1000, node.getNodeForKey("k1000").getInteger());
+        assertEquals(List.of("k500", "k501"), keys(node.splice(500, 2)));
+    }
+}
@@ -0,0 +1,116 @@
+package com.crschnick.pdxu.io.node;
+
+import com.crschnick.pdxu.io.parser.TextFormatParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodePointerTest {
+
+    private static final String INPUT = """
+            country={ tag=SWE army={ size=10 } army={ size=20 } }
+            country={ tag=NOR army={ size=5 } navy={ army={ size=1 } } }
+            country={ tag=DAN }
+            """;
+
+    private static ArrayNode parse(String input) throws Exception {
+        return TextFormatParser.text().parse("test", input.getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    private static List<String> strings(Stream<Node> nodes) {
+        return nodes.map(n -> n.isArray() ? "{" + n.getArrayNode().size() + "}" : n.getString()).toList();
+    }
+
+    @Test
+    public void testNameMatchesAllEntries() throws Exception {
+        var root = parse(INPUT);
+        var pointer = NodePointer.builder().name("country").name("army").name("size").build();
+        assertEquals(List.of("10", "20", "5"), strings(pointer.stream(root)));
+        // Direct evaluation only follows the first entry of every key
+        assertEquals(10, pointer.get(root).getInteger());
+
+        var missing = NodePointer.builder().name("country").name("navy").name("size").build();
+        assertEquals(List.of(), strings(missing.stream(root)));
+        assertNull(missing.get(root));
+    }
+
+    @Test
+    public void testWildcardMatchesAllEntries() throws Exception {
+        var root = parse(INPUT);
+        var pointer = NodePointer.builder().index(1).wildcard().build();
+        assertEquals(List.of("NOR", "{1}", "{1}"), strings(pointer.stream(root)));
+        assertEquals("NOR", pointer.get(root).getString());
+        // Values have no entries
+        assertEquals(List.of(), strings(NodePointer.builder().name("country").name("tag").wildcard().build().stream(root)));
+    }
+
+    @Test
+    public void testRecursiveOrder() throws Exception {
+        var root = parse(INPUT);
+        // Nested arrays are visited depth-first, so the army of the navy comes after the armies of its country
+        assertEquals(List.of("10", "20", "5", "1"), strings(NodePointer.builder().recursive().name("size").build().stream(root)));
+        assertEquals(List.of("{3}", "{3}", "{1}", "{1}", "{3}", "{1}", "{1}", "{1}", "{1}"),
+                strings(NodePointer.builder().recursive().build().stream(root)));
+        assertSame(root, NodePointer.builder().recursive().build().get(root));
+
+        // Recursion below a matched node
+        assertEquals(List.of("1"), strings(NodePointer.builder().index(1).name("navy").recursive().name("size").build().stream(root)));
+    }
+
+    @Test
+    public void testPredicateOnValues() throws Exception {
+        var root = parse(INPUT);
+        var sizes = NodePointer.builder().recursive().name("size").filter(n -> n.getInteger() > 5).build();
+        assertEquals(List.of("10", "20"), strings(sizes.stream(root)));
+        // Direct evaluation of a recursive element stays at the current node
+        assertNull(sizes.get(root));
+
+        var armies = NodePointer.builder().name("country").name("army").name("size").filter(n -> n.getInteger() > 5).build();
+        assertEquals(List.of("10", "20"), strings(armies.stream(root)));
+        assertEquals(10, armies.get(root).getInteger());
+
+        var tags = NodePointer.builder().name("country").name("tag").filter(n -> n.getString().startsWith("D")).build();
+        assertEquals(List.of("DAN"), strings(tags.stream(root)));
+        // Direct evaluation only checks the first tag
+        assertNull(tags.get(root));
+    }
+
+    @Test
+    public void testParallelStreamKeepsOrder() throws Exception {
+        var sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("country={ army={ size=").append(i).append(" } army={ size=").append(-i).append(" } }\n");
+        }
+        var root = parse(sb.toString());
+        for (var pointer : List.of(
+                NodePointer.builder().name("country").name("army").name("size").build(),
+                NodePointer.builder().wildcard().recursive().name("size").build(),
+                NodePointer.builder().name("country").wildcard().wildcard().filter(n -> n.getInteger() % 3 == 0).build())) {
+            var expected = strings(pointer.stream(root));
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, strings(pointer.parallelStream(root)), pointer.toString());
+        }
+    }
+
+    @Test
+    public void testParallelStreamWithoutMultiMatch() throws Exception {
+        var root = parse(INPUT);
+        var evaluated = new AtomicInteger();
+        var pointer = NodePointer.builder().index(1).index(2).index(0).filter(n -> {
+            evaluated.incrementAndGet();
+            return true;
+        }).build();
+
+        // The path can only match one node, so it is evaluated lazily like a sequential stream
+        var stream = pointer.parallelStream(root);
+        assertEquals(0, evaluated.get());
+        assertEquals(List.of("{1}"), strings(stream));
+        assertEquals(1, evaluated.get());
+        assertSame(pointer.get(root), pointer.parallelStream(root).findFirst().orElseThrow());
+    }
+}
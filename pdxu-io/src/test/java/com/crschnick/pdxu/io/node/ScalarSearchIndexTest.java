@@ -0,0 +1,145 @@
+package com.crschnick.pdxu.io.node;
+
+import com.crschnick.pdxu.io.parser.TextFormatParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalarSearchIndexTest {
+
+    private static final int FILLER_ENTRIES = 40000;
+    private static final int COUNTRY_ENTRY = 20000;
+
+    /**
+     * Creates an input with enough literals for the matchers to use the search index.
+     * The filler entries only consist of digits and the letter e, the other literals lie in known entries.
+     */
+    private static SimpleArrayNode parse(TextFormatParser parser) throws Exception {
+        var sb = new StringBuilder("tag=SWE\n");
+        for (int i = 1; i < FILLER_ENTRIES; i++) {
+            if (i == COUNTRY_ENTRY) {
+                sb.append("country={ name=\"Sweden\" navy={ size=5 } }\n");
+            }
+            sb.append("e").append(i).append("=").append(i).append("\n");
+        }
+        sb.append("caf\u00e9=CAF\u00c9\n");
+        var root = (SimpleArrayNode) parser.parse("test", sb.toString().getBytes(parser.getCharset()), 0);
+        assertTrue(new NodeMatcher.CaseSenstiveMatcher("e", true).usesSearchIndex(root.getContext()));
+        return root;
+    }
+
+    private static List<String> findMatches(NodeContext context, NodeMatcher matcher) {
+        return Arrays.stream(context.getSearchIndex().findMatches(matcher)).mapToObj(context::evaluateRaw).toList();
+    }
+
+    private static int findLiteral(NodeContext context, String raw) {
+        for (int l = 0; l < context.getLiteralsCount(); l++) {
+            if (context.evaluateRaw(l).equals(raw)) {
+                return l;
+            }
+        }
+        throw new AssertionError(raw);
+    }
+
+    private static int[] indices(NodePointer pointer) {
+        return pointer.getPath().stream().mapToInt(e -> ((NodePointer.IndexElement) e).index()).toArray();
+    }
+
+    @Test
+    public void testFindMatches() throws Exception {
+        var context = parse(TextFormatParser.text()).getContext();
+        assertEquals(List.of("\"Sweden\""), findMatches(context, new NodeMatcher.CaseSenstiveMatcher("Swed", true)));
+        assertEquals(List.of("SWE", "\"Sweden\""), findMatches(context, new NodeMatcher.CaseInsenstiveMatcher("sWe", true)));
+        assertEquals(List.of(), findMatches(context, new NodeMatcher.CaseSenstiveMatcher("swe", true)));
+        assertEquals(List.of(), findMatches(context, new NodeMatcher.CaseInsenstiveMatcher("zzq", true)));
+
+        // Patterns shorter than a trigram are searched in all blocks
+        assertEquals(List.of("SWE", "\"Sweden\""), findMatches(context, new NodeMatcher.CaseInsenstiveMatcher("w", true)));
+        assertEquals(List.of("navy"), findMatches(context, new NodeMatcher.CaseSenstiveMatcher("vy", true)));
+        assertEquals(List.of("e39999", "39999"), findMatches(context, new NodeMatcher.CaseSenstiveMatcher("39999", true)));
+    }
+
+    @Test
+    public void testNonAsciiPatterns() throws Exception {
+        for (var parser : List.of(TextFormatParser.text(), TextFormatParser.eu4())) {
+            var context = parse(parser).getContext();
+            // The upper and lower case of a non ASCII letter are not folded to the same byte
+            assertNull(new NodeMatcher.CaseInsenstiveMatcher("caf\u00c9", true).getFoldedBytes(context.getCharset()));
+            assertEquals(List.of("caf\u00e9", "CAF\u00c9"), findMatches(context, new NodeMatcher.CaseInsenstiveMatcher("caf\u00c9", true)));
+            assertEquals(List.of("CAF\u00c9"), findMatches(context, new NodeMatcher.CaseSenstiveMatcher("AF\u00c9", true)));
+            assertEquals(List.of("caf\u00e9", "CAF\u00c9"), findMatches(context, new NodeMatcher.CaseInsenstiveMatcher("\u00e9", true)));
+        }
+    }
+
+    @Test
+    public void testEmptyPattern() throws Exception {
+        var root = parse(TextFormatParser.text());
+        // The empty pattern is contained in every literal, so no block can be skipped
+        for (var matcher : List.of(new NodeMatcher.CaseSenstiveMatcher("", true), new NodeMatcher.CaseInsenstiveMatcher("", true))) {
+            assertEquals(root.getContext().getLiteralsCount(), root.getContext().getSearchIndex().findMatches(matcher).length);
+            assertTrue(root.matches(matcher));
+            assertTrue(root.splice(1, 10).matchesParallel(matcher));
+            assertTrue(root.getNodeAt(COUNTRY_ENTRY).getNodeForKey("navy").matches(matcher));
+        }
+    }
+
+    @Test
+    public void testSkippedSubtrees() throws Exception {
+        var root = parse(TextFormatParser.text());
+        var matcher = new NodeMatcher.CaseInsenstiveMatcher("sweden", true);
+        assertTrue(root.matches(matcher));
+        assertTrue(root.matchesParallel(matcher));
+        assertTrue(root.getNodeAt(COUNTRY_ENTRY).matches(matcher));
+        assertFalse(root.getNodeAt(COUNTRY_ENTRY).getNodeForKey("navy").matches(matcher));
+
+        // Splices next to the match are skipped, the ones that contain it are scanned
+        assertFalse(root.splice(1, COUNTRY_ENTRY - 1).matches(matcher));
+        assertFalse(root.splice(COUNTRY_ENTRY + 1, 1000).matchesParallel(matcher));
+        assertTrue(root.splice(COUNTRY_ENTRY - 10, 11).matches(matcher));
+        assertTrue(root.splice(COUNTRY_ENTRY, 1000).matchesParallel(matcher));
+
+        var missing = new NodeMatcher.CaseSenstiveMatcher("zzq", true);
+        assertFalse(root.matches(missing));
+        assertFalse(root.matchesParallel(missing));
+    }
+
+    @Test
+    public void testLiteralAt() throws Exception {
+        var context = parse(TextFormatParser.text()).getContext();
+        var index = context.getSearchIndex();
+        int sweden = findLiteral(context, "\"Sweden\"");
+        int begin = context.getLiteralsBegin()[sweden];
+        assertEquals(sweden, index.getLiteralAt(begin));
+        assertEquals(sweden, index.getLiteralAt(begin + context.getLiteralLength(sweden) - 1));
+        // The separators between literals
+        assertEquals(-1, index.getLiteralAt(begin + context.getLiteralLength(sweden)));
+        assertEquals(-1, index.getLiteralAt(begin - 1));
+        assertEquals(sweden - 1, index.getLiteralAt(begin - 2));
+        assertEquals(0, index.getLiteralAt(0));
+    }
+
+    @Test
+    public void testPaths() throws Exception {
+        var root = parse(TextFormatParser.text());
+        var context = root.getContext();
+        var index = context.getSearchIndex();
+
+        // Key and value literals both point to their entry
+        assertArrayEquals(new int[]{COUNTRY_ENTRY, 0}, indices(index.getPath(root, findLiteral(context, "name"))));
+        assertArrayEquals(new int[]{COUNTRY_ENTRY, 0}, indices(index.getPath(root, findLiteral(context, "\"Sweden\""))));
+        assertArrayEquals(new int[]{COUNTRY_ENTRY, 1, 0}, indices(index.getPath(root, findLiteral(context, "size"))));
+        assertArrayEquals(new int[]{COUNTRY_ENTRY}, indices(index.getPath(root, findLiteral(context, "country"))));
+        assertArrayEquals(new int[]{0}, indices(index.getPath(root, 1)));
+        assertArrayEquals(new int[]{root.size() - 1}, indices(index.getPath(root, context.getLiteralsCount() - 1)));
+
+        var path = index.getPath(root, findLiteral(context, "e39999"));
+        assertEquals(39999, path.get(root).getInteger());
+
+        // Only nodes of the same context are searched
+        assertNull(index.getPath(root.getNodeAt(COUNTRY_ENTRY).getArrayNode(), 1));
+        assertNull(index.getPath(TextFormatParser.text().parse("test", "tag=SWE".getBytes(), 0), 1));
+    }
+}
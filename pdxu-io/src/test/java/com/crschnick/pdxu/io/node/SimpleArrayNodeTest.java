@@ -0,0 +1,255 @@
+package com.crschnick.pdxu.io.node;
+
+import com.crschnick.pdxu.io.parser.TextFormatParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimpleArrayNodeTest {
+
+    // Every kind of entry: keyed and keyless values, quoted values and keyed, keyless and empty arrays
+    private static final String ENTRIES = "a=1 \"quoted\" b=\"text\" c={ 1 2 } { x=1 } d=-5 e={} 7";
+    private static final List<String> ENTRY_KEYS = Arrays.asList("a", null, "b", "c", null, "d", "e", null);
+
+    private static List<String> keys(ArrayNode node) {
+        return IntStream.range(0, node.size()).mapToObj(node::getKeyAt).toList();
+    }
+
+    private static void assertEntries(ArrayNode node) {
+        assertEquals(ENTRY_KEYS, keys(node));
+        assertEquals("1", node.getNodeAt(0).getString());
+        assertFalse(node.getNodeAt(0).getValueNode().isQuoted());
+        assertEquals("quoted", node.getNodeAt(1).getString());
+        assertTrue(node.getNodeAt(1).getValueNode().isQuoted());
+        assertTrue(node.getNodeAt(2).getValueNode().isQuoted());
+        assertEquals(List.of("1", "2"), strings(node.getNodeAt(3).getNodeArray()));
+        assertEquals(1, node.getNodeAt(4).getNodeForKey("x").getInteger());
+        assertEquals(-5, node.getNodeAt(5).getInteger());
+        assertTrue(node.getNodeAt(6).isArray());
+        assertEquals(0, node.getNodeAt(6).getArrayNode().size());
+        assertEquals(7, node.getNodeAt(7).getInteger());
+    }
+
+    private static List<TextFormatParser> parsers() {
+        return List.of(TextFormatParser.text(), TextFormatParser.text().withInternedKeys(),
+                TextFormatParser.eu4(), TextFormatParser.eu4().withInternedKeys());
+    }
+
+    private static ArrayNode parse(TextFormatParser parser, String input) throws Exception {
+        return parser.parse("test", input.getBytes(parser.getCharset()), 0);
+    }
+
+    /**
+     * Creates the entries k0=0 k1=1 ... with the given count.
+     */
+    private static String entries(int count) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("k").append(i).append("=").append(i).append(" ");
+        }
+        return sb.toString();
+    }
+
+    private static List<String> strings(List<Node> nodes) {
+        return nodes.stream().map(Node::getString).toList();
+    }
+
+    @Test
+    public void testKeyLookupsAroundIndexThreshold() throws Exception {
+        for (int count : new int[] {0, 1, 30, 31, 32, 100}) {
+            for (var parser : parsers()) {
+                var node = parse(parser, entries(count) + "k0=dup nested={ k0=inner } 5");
+                int size = count + 3;
+                assertEquals(size, node.size());
+
+                // The first entry is returned for duplicate keys, nested keys are not found
+                assertEquals(count > 0 ? "0" : "dup", node.getNodeForKey("k0").getString());
+                assertEquals(count > 0 ? List.of("0", "dup") : List.of("dup"), strings(node.getNodesForKey("k0")));
+                assertEquals(strings(node.getNodesForKey("k0")), strings(node.getNodesForKey(NodeKey.of("k0"))));
+                assertEquals("inner", node.getNodeForKey("nested").getNodeForKey("k0").getString());
+                assertFalse(node.hasKey("inner"));
+
+                assertTrue(node.hasKey("k" + Math.max(count - 1, 0)));
+                assertFalse(node.hasKey("k" + Math.max(count, 1)));
+                assertFalse(node.hasKey(NodeKey.of("k" + Math.max(count, 1))));
+                assertTrue(node.getNodesForKey("missing").isEmpty());
+                assertTrue(node.getNodeForKeyIfExistent(NodeKey.of("missing")).isEmpty());
+                assertThrows(IllegalArgumentException.class, () -> node.getNodeForKey(NodeKey.of("missing")));
+
+                // The value of the keyless entry is not a key
+                assertNull(node.getKeyAt(size - 1));
+                assertFalse(node.hasKey("5"));
+                assertFalse(node.isKeyAt("5", size - 1));
+                assertTrue(node.isKeyAt("k0", size - 3));
+                assertTrue(node.isKeyAt(NodeKey.of("k0"), size - 3));
+                assertFalse(node.isKeyAt("k0", size - 2));
+            }
+        }
+    }
+
+    @Test
+    public void testKeyLookupsInSplices() throws Exception {
+        for (var parser : parsers()) {
+            var node = parse(parser, entries(50) + "k20=dup k45=dup");
+            // Both the node and the large splice are looked up with a key index, the small splice is scanned
+            assertEquals("20", node.getNodeForKey("k20").getString());
+            var splice = node.splice(10, 41);
+            assertEquals("10", splice.getNodeAt(0).getString());
+            assertEquals("10", splice.getNodeForKey("k10").getString());
+            assertFalse(splice.hasKey("k9"));
+            assertFalse(splice.hasKey(NodeKey.of("k9")));
+            assertEquals(List.of("20", "dup"), strings(splice.getNodesForKey("k20")));
+            assertEquals(List.of("45"), strings(splice.getNodesForKey(NodeKey.of("k45"))));
+            assertTrue(splice.isKeyAt("k10", 0));
+
+            var small = node.splice(48, 3);
+            assertEquals(List.of("k48", "k49", "k20"), List.of(small.getKeyAt(0), small.getKeyAt(1), small.getKeyAt(2)));
+            assertEquals("dup", small.getNodeForKey("k20").getString());
+            assertFalse(small.hasKey("k45"));
+        }
+    }
+
+    @Test
+    public void testNonAsciiKeyLookups() throws Exception {
+        for (var parser : parsers()) {
+            var node = parse(parser, entries(40) + "caf\u00e9=1 cafe=2 \u00c4\u00d6\u00dc=3");
+            assertEquals(1, node.getNodeForKey("caf\u00e9").getInteger());
+            assertEquals(2, node.getNodeForKey(NodeKey.of("cafe")).getInteger());
+            assertEquals(3, node.getNodeForKey("\u00c4\u00d6\u00dc").getInteger());
+            assertFalse(node.hasKey("caf"));
+            assertFalse(node.hasKey("caf\u00e9s"));
+        }
+    }
+
+    @Test
+    public void testEntries() throws Exception {
+        for (var parser : parsers()) {
+            var node = parse(parser, ENTRIES);
+            assertEquals(8, node.size());
+            assertEntries(node);
+
+            // Nodes are only created once
+            var list = node.getNodeArray();
+            for (int i = 0; i < node.size(); i++) {
+                assertSame(list.get(i), node.getNodeAt(i));
+            }
+
+            // Written nodes are parsed into the same entries
+            assertEntries(parse(parser, NodeWriter.writeToString(node, Integer.MAX_VALUE, "\t")));
+        }
+    }
+
+    @Test
+    public void testEmptyArray() throws Exception {
+        var node = parse(TextFormatParser.text(), "");
+        assertEquals(0, node.size());
+        assertTrue(node.getNodeArray().isEmpty());
+        assertFalse(node.cursor().next());
+        assertTrue(node.forEach((k, v) -> {
+            return false;
+        }, true));
+    }
+
+    @Test
+    public void testForEach() throws Exception {
+        var node = parse(TextFormatParser.text(), ENTRIES);
+        var keys = new ArrayList<String>();
+        var nodes = new ArrayList<Node>();
+        node.forEach((k, v) -> {
+            keys.add(k);
+            nodes.add(v);
+        }, true);
+        assertEquals(ENTRY_KEYS, keys);
+        assertEquals(node.getNodeArray(), nodes);
+
+        var withKeys = new ArrayList<String>();
+        node.forEach((k, v) -> {
+            withKeys.add(k);
+        }, false);
+        assertEquals(List.of("a", "b", "c", "d", "e"), withKeys);
+
+        // Iteration stops once the predicate returns false
+        var visited = new ArrayList<Node>();
+        assertFalse(node.forEach((k, v) -> {
+            visited.add(v);
+            return visited.size() < 3;
+        }, true));
+        assertEquals(3, visited.size());
+    }
+
+    @Test
+    public void testCursor() throws Exception {
+        var node = parse(TextFormatParser.text(), ENTRIES);
+        var cursor = node.cursor();
+        for (int i = 0; i < node.size(); i++) {
+            assertTrue(cursor.next());
+            assertEquals(i, cursor.getIndex());
+            assertEquals(ENTRY_KEYS.get(i), cursor.getKey());
+            assertEquals(ENTRY_KEYS.get(i) != null, cursor.hasKey());
+            assertEquals(node.getNodeAt(i).isArray(), cursor.isArray());
+            assertEquals(node.getNodeAt(i).isValue(), cursor.isValue());
+            assertSame(node.getNodeAt(i), cursor.getNode());
+        }
+        assertFalse(cursor.next());
+
+        cursor = node.cursor();
+        cursor.next();
+        assertEquals(1, cursor.getLong());
+    }
+
+    @Test
+    public void testSplices() throws Exception {
+        var node = parse(TextFormatParser.text(), ENTRIES);
+        var splice = node.splice(1, 4);
+        assertEquals(ENTRY_KEYS.subList(1, 5), keys(splice));
+        for (int i = 0; i < splice.size(); i++) {
+            assertSame(node.getNodeAt(i + 1), splice.getNodeAt(i));
+        }
+        assertEquals(1, splice.getNodeAt(3).getNodeForKey("x").getInteger());
+
+        assertEquals(0, node.splice(3, 0).size());
+        assertEntries(node.splice(0, node.size()));
+        assertEquals(List.of("d", "e"), keys(node.splice(5, 2)));
+    }
+
+    @Test
+    public void testValueChangesAreVisibleInSplices() throws Exception {
+        var node = parse(TextFormatParser.text(), "a=1 b=2 c=3 d=4");
+        var splice = node.splice(1, 2);
+        splice.getNodeAt(1).getValueNode().set(new ValueNode("changed", false));
+        assertEquals("changed", node.getNodeForKey("c").getString());
+        assertEquals("changed", node.splice(2, 2).getNodeAt(0).getString());
+    }
+
+    @Test
+    public void testCopyIsIndependent() throws Exception {
+        var node = parse(TextFormatParser.text(), ENTRIES);
+        // Create some of the value nodes before copying
+        node.getNodeAt(0);
+
+        var copy = node.copy().getArrayNode();
+        assertEntries(copy);
+        copy.getNodeAt(0).getValueNode().set(new ValueNode("changed", false));
+        copy.getNodeAt(5).getValueNode().set(new ValueNode("changed", false));
+        copy.getNodeAt(3).getNodeArray().get(0).getValueNode().set(new ValueNode("changed", false));
+        assertEntries(node);
+    }
+
+    @Test
+    public void testNodeKeyCanBeUsedWithMultipleCharsets() throws Exception {
+        var key = NodeKey.of("caf\u00e9");
+        var utf8 = parse(TextFormatParser.text(), "caf\u00e9=1 cafe=2");
+        var windows1252 = parse(TextFormatParser.eu4(), "cafe=2 caf\u00e9=1");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, utf8.getNodeForKey(key).getInteger());
+            assertEquals(1, windows1252.getNodeForKey(key).getInteger());
+        }
+        assertEquals(5, key.getBytes(TextFormatParser.text().getCharset()).length);
+        assertEquals(4, key.getBytes(TextFormatParser.eu4().getCharset()).length);
+    }
+}
@@ -0,0 +1,128 @@
+package com.crschnick.pdxu.io.node;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValueNodeTest {
+
+    /**
+     * Creates a context whose literals are the given strings, separated by spaces.
+     */
+    private static NodeContext createContext(List<String> literals) {
+        var out = new ByteArrayOutputStream();
+        var begins = new int[literals.size()];
+        var lengths = new short[literals.size()];
+        for (int i = 0; i < literals.size(); i++) {
+            var bytes = literals.get(i).getBytes(StandardCharsets.UTF_8);
+            begins[i] = out.size();
+            lengths[i] = (short) bytes.length;
+            out.writeBytes(bytes);
+            out.write(' ');
+        }
+        return new NodeContext(out.toByteArray(), StandardCharsets.UTF_8, begins, lengths, literals.size());
+    }
+
+    private static String content(String literal) {
+        return literal.length() >= 2 && literal.startsWith("\"") && literal.endsWith("\"") ? literal.substring(1, literal.length() - 1) : literal;
+    }
+
+    /**
+     * @return the result or the class of the thrown exception
+     */
+    private static Object evaluate(Callable<Object> c) {
+        try {
+            return c.call();
+        } catch (Exception ex) {
+            return ex.getClass();
+        }
+    }
+
+    /**
+     * Compares the number parsing with parsing the content string with the JDK, which was the previous implementation.
+     */
+    private static void assertParsedLikeJdk(List<String> literals) {
+        var context = createContext(literals);
+        for (int i = 0; i < literals.size(); i++) {
+            var node = new ValueNode(context, i);
+            var s = content(literals.get(i));
+            assertEquals(evaluate(() -> Integer.parseInt(s)), evaluate(node::getInteger), literals.get(i));
+            assertEquals(evaluate(() -> Long.parseLong(s)), evaluate(node::getLong), literals.get(i));
+            assertEquals(evaluate(() -> Double.parseDouble(s.replaceAll(",", ""))), evaluate(node::getDouble), literals.get(i));
+        }
+    }
+
+    @Test
+    public void testIntegers() {
+        var context = createContext(List.of("0", "-0", "+5", "\"42\"", "123456789", "2147483647", "-2147483648", "9223372036854775807"));
+        assertEquals(0, new ValueNode(context, 1).getInteger());
+        assertEquals(5, new ValueNode(context, 2).getInteger());
+        assertEquals(42, new ValueNode(context, 3).getLong());
+        assertEquals(123456789, new ValueNode(context, 4).getInteger());
+        assertEquals(Integer.MAX_VALUE, new ValueNode(context, 5).getInteger());
+        assertEquals(Integer.MIN_VALUE, new ValueNode(context, 6).getInteger());
+        assertEquals(Long.MAX_VALUE, new ValueNode(context, 7).getLong());
+        assertThrows(NumberFormatException.class, () -> new ValueNode(context, 7).getInteger());
+    }
+
+    @Test
+    public void testDecimals() {
+        var context = createContext(List.of("1.5", "-0.001", "1,000.25", "\"0.1\"", "1444.11", "0.12345678901234567", "1e5"));
+        assertEquals(1.5, new ValueNode(context, 0).getDouble());
+        assertEquals(-0.001, new ValueNode(context, 1).getDouble());
+        assertEquals(1000.25, new ValueNode(context, 2).getDouble());
+        assertEquals(0.1, new ValueNode(context, 3).getDouble());
+        assertEquals(1444.11, new ValueNode(context, 4).getDouble());
+        assertEquals(0.12345678901234567, new ValueNode(context, 5).getDouble());
+        assertEquals(100000.0, new ValueNode(context, 6).getDouble());
+    }
+
+    @Test
+    public void testInvalidNumbers() {
+        // A single quote character is not quoted
+        assertParsedLikeJdk(List.of("\"", "\"\"", "-", "+", "\"-\"", "--1", "1-", "1.2.3", "abc", "12a", "\u0661",
+                "2147483648", "99999999999999999999", ".", ",", "1..0"));
+        var context = createContext(List.of("\"", "-", "2147483648"));
+        assertFalse(new ValueNode(context, 0).isQuoted());
+        assertEquals("\"", new ValueNode(context, 0).getString());
+        assertThrows(NumberFormatException.class, () -> new ValueNode(context, 0).getInteger());
+        assertThrows(NumberFormatException.class, () -> new ValueNode(context, 0).getLong());
+        assertThrows(NumberFormatException.class, () -> new ValueNode(context, 1).getInteger());
+        assertThrows(NumberFormatException.class, () -> new ValueNode(context, 2).getInteger());
+    }
+
+    @Test
+    public void testRandomNumbersAreParsedLikeJdk() {
+        var r = new Random(0);
+        for (int batch = 0; batch < 20; batch++) {
+            var literals = new ArrayList<String>();
+            for (int i = 0; i < 100_000; i++) {
+                var sb = new StringBuilder();
+                switch (r.nextInt(8)) {
+                    case 0 -> sb.append('-');
+                    case 1 -> sb.append('+');
+                }
+                int digits = r.nextInt(21);
+                int separator = r.nextInt(4) == 0 ? r.nextInt(digits + 1) : -1;
+                for (int d = 0; d < digits; d++) {
+                    if (d == separator) {
+                        sb.append(".,e".charAt(r.nextInt(3)));
+                    }
+                    sb.append((char) ('0' + r.nextInt(10)));
+                }
+                if (sb.isEmpty() || r.nextInt(50) == 0) {
+                    sb.append("x-.".charAt(r.nextInt(3)));
+                }
+                literals.add(r.nextInt(5) == 0 ? "\"" + sb + "\"" : sb.toString());
+            }
+            assertParsedLikeJdk(literals);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.crschnick.pdxu.io.parser;
+
+import com.crschnick.pdxu.io.node.ArrayNode;
+import com.crschnick.pdxu.io.node.DeferredArrayNode;
+import com.crschnick.pdxu.io.node.Node;
+import com.crschnick.pdxu.io.node.NodePointer;
+import com.crschnick.pdxu.io.node.NodeWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextFormatParserTest {
+
+    // Arrays whose extents are easy to get wrong: empty, nested, keyless and arrays with braces in quotes and comments
+    private static final byte[] INPUT = ("""
+            a={ x=1 y={ 1 2 } }
+            empty={}
+            nested={ { { 1 } } {} { 2 } }
+            quoted={ name="} {" other="\\"}" }
+            commented={ # } {
+                z=3 }
+            a={ x=2 }
+            list={ a={ b=1 } a={ b=2 } }
+            value=4
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private static String write(Node node) {
+        if (node == null) {
+            return null;
+        }
+        return NodeWriter.writeToString(node.isArray() ? node.getArrayNode() : ArrayNode.array(List.of(node)), Integer.MAX_VALUE, "\t");
+    }
+
+    /**
+     * Index elements can't be applied to values, so the pointer evaluation fails the same way for both nodes.
+     */
+    private static String evaluate(NodePointer pointer, ArrayNode root) {
+        try {
+            return write(pointer.get(root));
+        } catch (UnsupportedOperationException ex) {
+            return ex.getClass().getName();
+        }
+    }
+
+    @Test
+    public void testDeferredParsing() throws Exception {
+        var deferred = TextFormatParser.text().deferred().parse("test", INPUT, 0);
+        assertTrue(deferred.getNodeForKey("nested") instanceof DeferredArrayNode d && !d.isLoaded());
+        assertEquals(0, deferred.getNodeForKey("empty").getArrayNode().size());
+        assertEquals(3, deferred.getNodeForKey("nested").getArrayNode().size());
+        assertEquals("} {", deferred.getNodeForKey("quoted").getNodeForKey("name").getString());
+        assertEquals("\"}", deferred.getNodeForKey("quoted").getNodeForKey("other").getString());
+        assertEquals(3, deferred.getNodeForKey("commented").getNodeForKey("z").getInteger());
+        assertEquals(2, deferred.getNodesForKey("a").get(1).getNodeForKey("x").getInteger());
+        assertEquals(4, deferred.getNodeForKey("value").getInteger());
+        assertEquals(write(TextFormatParser.text().parse("test", INPUT, 0)), write(deferred));
+    }
+
+    @Test
+    public void testDeferredParsingOfChannel() throws Exception {
+        var expected = write(TextFormatParser.text().parse("test", INPUT, 0));
+        assertEquals(expected, write(TextFormatParser.text().deferred().parse("test", new ByteArrayInputStream(INPUT), false)));
+
+        var file = Files.createTempFile("pdxu", ".txt");
+        try {
+            Files.write(file, INPUT);
+            assertEquals(expected, write(TextFormatParser.text().deferred().parse("test", file, false)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testDeferredArraysAreLoadedIndependently() throws Exception {
+        var input = "a={ x=1 } b={ y={ 2 3 } } c=4".getBytes(StandardCharsets.UTF_8);
+        var root = TextFormatParser.text().deferred().parse("test", input, 0);
+        var a = (DeferredArrayNode) root.getNodeForKey("a");
+        var b = (DeferredArrayNode) root.getNodeForKey("b");
+        assertEquals(1, a.getNodeForKey("x").getInteger());
+        assertTrue(a.isLoaded());
+        assertFalse(b.isLoaded());
+        assertEquals(3, b.getNodeForKeys("y").getNodeArray().get(1).getInteger());
+        assertEquals(4, root.getNodeForKey("c").getInteger());
+    }
+
+    @Test
+    public void testProjectedParsing() throws Exception {
+        var pointers = List.of(
+                NodePointer.builder().name("a").name("x").build(),
+                NodePointer.builder().name("nested").index(2).build(),
+                NodePointer.builder().name("list").wildcard().name("b").build(),
+                NodePointer.builder().name("value").index(0).build(),
+                NodePointer.builder().name("missing").name("x").build());
+        var full = TextFormatParser.text().parse("test", INPUT, 0);
+        var projected = TextFormatParser.text().projected(pointers).parse("test", INPUT, 0);
+        for (var p : pointers) {
+            assertEquals(evaluate(p, full), evaluate(p, projected), p.toString());
+            assertEquals(p.stream(full).map(TextFormatParserTest::write).toList(),
+                    p.stream(projected).map(TextFormatParserTest::write).toList(), p.toString());
+        }
+
+        // Entries that don't lie on any path are skipped, but duplicate keys are kept
+        assertEquals(List.of("a", "nested", "a", "list", "value"),
+                IntStream.range(0, projected.size()).mapToObj(projected::getKeyAt).toList());
+        assertEquals(List.of(1, 2), pointers.get(2).stream(projected).map(Node::getInteger).toList());
+    }
+
+    @Test
+    public void testProjectedParsingKeepsCompleteSubtrees() throws Exception {
+        var input = "a={ b={ c={ 1 2 } d=3 } e=4 } f={ b=5 }".getBytes(StandardCharsets.UTF_8);
+        var projected = TextFormatParser.text().projected(List.of(NodePointer.builder().name("a").name("b").build())).parse("test", input, 0);
+        assertEquals(1, projected.size());
+        var a = projected.getNodeForKey("a");
+        assertEquals(1, a.getArrayNode().size());
+        assertEquals(write(TextFormatParser.text().parse("test", "c={ 1 2 } d=3".getBytes(StandardCharsets.UTF_8), 0)),
+                write(a.getNodeForKey("b")));
+    }
+}
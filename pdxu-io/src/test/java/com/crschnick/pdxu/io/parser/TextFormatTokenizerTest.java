@@ -0,0 +1,182 @@
+package com.crschnick.pdxu.io.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextFormatTokenizerTest {
+
+    // Large enough to be split into two parallel segments
+    private static final int PARALLEL_INPUT_SIZE = 10 << 20;
+    private static final int LONG_SCALAR_LENGTH = Short.MAX_VALUE + 5000;
+
+    private static TextFormatTokenizer tokenize(byte[] input) throws Exception {
+        var t = new TextFormatTokenizer("test", input, 0, false);
+        t.tokenize();
+        return t;
+    }
+
+    private static TextFormatTokenizer tokenizeChannel(byte[] input, int chunkSize, long sizeHint) throws Exception {
+        var t = new TextFormatTokenizer("test", Channels.newChannel(new ByteArrayInputStream(input)), chunkSize, sizeHint, false);
+        t.tokenize();
+        return t;
+    }
+
+    /**
+     * A single chunk that contains the whole input is tokenized sequentially.
+     */
+    private static TextFormatTokenizer tokenizeSequential(byte[] input) throws Exception {
+        return tokenizeChannel(input, input.length + 1, input.length);
+    }
+
+    private static void appendFiller(StringBuilder sb, int length) {
+        int end = sb.length() + length;
+        for (int i = 0; sb.length() < end - 40; i++) {
+            switch (i % 4) {
+                case 0 -> sb.append("key").append(i).append("=").append(i).append("\n");
+                case 1 -> sb.append("list={ 1 2 ").append(i).append(" }\n");
+                case 2 -> sb.append("name=\"a \\\"b\\\" ").append(i).append("\"\n");
+                default -> sb.append("date=1444.11.11 # comment\n");
+            }
+        }
+        sb.append(" ".repeat(end - 1 - sb.length())).append("\n");
+    }
+
+    /**
+     * Creates an input in which the second parallel segment starts right after {@code before}.
+     * {@code before} has to end with a new line.
+     */
+    private static byte[] splitAt(String before, String after) {
+        var sb = new StringBuilder(PARALLEL_INPUT_SIZE);
+        appendFiller(sb, PARALLEL_INPUT_SIZE / 2 - before.length());
+        sb.append(before).append(after);
+        appendFiller(sb, PARALLEL_INPUT_SIZE - sb.length());
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int getScalarLength(TextFormatTokenizer t, int scalar) {
+        int l = t.getScalarsLength()[scalar];
+        return l >= 0 ? l : t.getLongScalarsLength()[-l - 1];
+    }
+
+    private static void assertSameTokens(TextFormatTokenizer expected, TextFormatTokenizer actual) {
+        int[] ee = expected.getArrayExtents();
+        int[] ae = actual.getArrayExtents();
+        int tokenCount = ee[TextFormatTokenizer.EXTENT_CLOSE_TOKEN] + 1;
+        int arrayCount = ee[TextFormatTokenizer.EXTENT_ARRAY_END];
+        assertEquals(tokenCount, ae[TextFormatTokenizer.EXTENT_CLOSE_TOKEN] + 1, "token count");
+        assertEquals(arrayCount, ae[TextFormatTokenizer.EXTENT_ARRAY_END], "array count");
+        assertEquals(expected.getScalarCount(), actual.getScalarCount(), "scalar count");
+
+        assertArrayEquals(Arrays.copyOf(expected.getTokenTypes(), tokenCount), Arrays.copyOf(actual.getTokenTypes(), tokenCount), "token types");
+        assertArrayEquals(Arrays.copyOf(expected.getArraySizes(), arrayCount), Arrays.copyOf(actual.getArraySizes(), arrayCount), "array sizes");
+        assertArrayEquals(Arrays.copyOf(ee, arrayCount * TextFormatTokenizer.EXTENT_SIZE),
+                Arrays.copyOf(ae, arrayCount * TextFormatTokenizer.EXTENT_SIZE), "array extents");
+
+        // Scalar offsets differ for channel input, so compare the scalar contents
+        for (int s = 0; s < expected.getScalarCount(); s++) {
+            int length = getScalarLength(expected, s);
+            assertEquals(length, getScalarLength(actual, s), "length of scalar " + s);
+
+            int es = expected.getScalarsStart()[s];
+            int as = actual.getScalarsStart()[s];
+            assertTrue(Arrays.equals(expected.getData(), es, es + length, actual.getData(), as, as + length), "contents of scalar " + s);
+        }
+    }
+
+    private static void assertParallelMatchesSequential(byte[] input) throws Exception {
+        assertSameTokens(tokenizeSequential(input), tokenize(input));
+    }
+
+    @Test
+    public void testSegmentInsideNestedArrays() throws Exception {
+        // More open arrays than the initial outer array sizes of a segment
+        var before = "outer={\n" + "level={ a\n".repeat(20);
+        var after = "b c={ d }\n" + "}\n".repeat(21);
+        assertParallelMatchesSequential(splitAt(before, after));
+    }
+
+    @Test
+    public void testSegmentInsideMultiLineString() throws Exception {
+        // The second segment does not start in the default state, so the speculation fails
+        assertParallelMatchesSequential(splitAt("text=\"first line\n", "} = { second line\n\"\nafter=1\n"));
+    }
+
+    @Test
+    public void testSegmentStartingWithEquals() throws Exception {
+        // The size of the outer array is not known to the second segment
+        assertParallelMatchesSequential(splitAt("outer={ key\n", "= value }\n"));
+    }
+
+    @Test
+    public void testSegmentsWithLongScalars() throws Exception {
+        var value = "x".repeat(LONG_SCALAR_LENGTH);
+        assertParallelMatchesSequential(splitAt("first=" + value + "\n", "second=\"" + value + "\"\nthird=" + value + "\n"));
+    }
+
+    @Test
+    public void testSegmentAfterCommentAndCrLf() throws Exception {
+        assertParallelMatchesSequential(splitAt("a={ # comment with { and \"\r\n", "b=\"} quoted\" }\r\n"));
+    }
+
+    @Test
+    public void testChannelChunkBoundaries() throws Exception {
+        var input = ("\ufeffa=\"quoted \\\" escape\" # comment with \"\n" +
+                "b={ c={ 1 2 } d=\"multi\nline\" }\r\n" +
+                "long=\"" + "y".repeat(LONG_SCALAR_LENGTH) + "\"\n" +
+                "e=[[ block ]] f=@[ a + 1 ] g={}").getBytes(StandardCharsets.UTF_8);
+        var expected = tokenize(input);
+        // Chunks that split most scalars, chunks that are much smaller than the long scalar and a chunk that contains the whole input
+        for (int chunkSize : new int[] {7, 64, 4096, TextFormatTokenizer.DEFAULT_CHUNK_SIZE}) {
+            assertSameTokens(expected, tokenizeChannel(input, chunkSize, input.length));
+            assertSameTokens(expected, tokenizeChannel(input, chunkSize, -1));
+        }
+    }
+
+    @Test
+    public void testArrayExtents() throws Exception {
+        var input = "a={ b={ 1 2 } c={ { x } {} } } d=3 e={ f={ g={ h=4 } } }".getBytes(StandardCharsets.UTF_8);
+        for (var t : new TextFormatTokenizer[] {tokenize(input), tokenizeChannel(input, 8, -1)}) {
+            var types = t.getTokenTypes();
+            var extents = t.getArrayExtents();
+            var openArrays = new ArrayDeque<Integer>();
+            int scalars = 0;
+            int arrays = 0;
+            int tokenCount = extents[TextFormatTokenizer.EXTENT_CLOSE_TOKEN] + 1;
+            for (int token = 0; token < tokenCount; token++) {
+                switch (types[token]) {
+                    case TextFormatTokenizer.STRING_QUOTED, TextFormatTokenizer.STRING_UNQUOTED -> scalars++;
+                    case TextFormatTokenizer.OPEN_GROUP -> openArrays.push(arrays++);
+                    case TextFormatTokenizer.CLOSE_GROUP -> {
+                        int extent = openArrays.pop() * TextFormatTokenizer.EXTENT_SIZE;
+                        assertEquals(token, extents[extent + TextFormatTokenizer.EXTENT_CLOSE_TOKEN]);
+                        assertEquals(scalars, extents[extent + TextFormatTokenizer.EXTENT_SCALAR_END]);
+                        assertEquals(arrays, extents[extent + TextFormatTokenizer.EXTENT_ARRAY_END]);
+                    }
+                }
+            }
+            assertTrue(openArrays.isEmpty());
+            assertEquals(t.getScalarCount(), scalars);
+            assertEquals(9, arrays);
+        }
+    }
+
+    @Test
+    public void testLongScalars() throws Exception {
+        var value = "a".repeat(LONG_SCALAR_LENGTH);
+        var input = ("quoted=\"" + value + "\"\nunquoted=" + value + "\nshort=b").getBytes(StandardCharsets.UTF_8);
+        for (var t : new TextFormatTokenizer[] {tokenize(input), tokenizeChannel(input, 1024, -1)}) {
+            assertEquals(6, t.getScalarCount());
+            assertEquals(LONG_SCALAR_LENGTH + 2, getScalarLength(t, 1));
+            assertEquals(LONG_SCALAR_LENGTH, getScalarLength(t, 3));
+            assertTrue(t.getScalarsLength()[1] < 0);
+            assertEquals(1, getScalarLength(t, 5));
+        }
+    }
+}
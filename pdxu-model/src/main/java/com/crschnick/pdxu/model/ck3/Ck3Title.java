@@ -1,6 +1,7 @@
 package com.crschnick.pdxu.model.ck3;
 
 import com.crschnick.pdxu.io.node.Node;
+import com.crschnick.pdxu.io.node.NodeKey;
 import com.crschnick.pdxu.model.coa.CoatOfArms;
 import com.crschnick.pdxu.model.GameColor;
 
@@ -8,6 +9,11 @@ import java.util.*;
 
 public class Ck3Title {
 
+    private static final NodeKey NAME = NodeKey.of("name");
+    private static final NodeKey KEY = NodeKey.of("key");
+    private static final NodeKey COAT_OF_ARMS_ID = NodeKey.of("coat_of_arms_id");
+    private static final NodeKey COLOR = NodeKey.of("color");
+
     private long id;
     private String key;
     private String name;
@@ -47,8 +53,8 @@ public class Ck3Title {
             return Optional.empty();
         }
 
-        var name = n.getNodeForKeyIfExistent("name").map(Node::getString).orElse(null);
-        var key = n.getNodeForKeyIfExistent("key").map(Node::getString).orElse(null);
+        var name = n.getNodeForKeyIfExistent(NAME).map(Node::getString).orElse(null);
+        var key = n.getNodeForKeyIfExistent(KEY).map(Node::getString).orElse(null);
         if (name == null || key == null) {
             return Optional.empty();
         }
@@ -62,14 +68,14 @@ public class Ck3Title {
         }
 
         CoatOfArms coatOfArms;
-        if (n.hasKey("coat_of_arms_id")) {
-            var coaId = n.getNodeForKey("coat_of_arms_id").getLong();
+        if (n.hasKey(COAT_OF_ARMS_ID)) {
+            var coaId = n.getNodeForKey(COAT_OF_ARMS_ID).getLong();
             coatOfArms = coaMap.get(coaId);
         } else {
             coatOfArms = CoatOfArms.empty();
         }
 
-        var color = n.getNodeForKeyIfExistent("color")
+        var color = n.getNodeForKeyIfExistent(COLOR)
                 .map(Node::getTaggedNode)
                 .map(GameColor::fromColorNode)
                 .orElse(null);